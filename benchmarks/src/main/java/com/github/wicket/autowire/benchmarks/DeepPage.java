@@ -0,0 +1,47 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law
+ * or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.github.wicket.autowire.benchmarks;
+
+import org.apache.wicket.markup.html.WebMarkupContainer;
+import org.apache.wicket.markup.html.WebPage;
+import org.apache.wicket.markup.html.basic.Label;
+
+import com.github.wicket.autowire.AutoComponent;
+
+/**
+ * Page with eight nested containers and a label in each of them.
+ */
+public class DeepPage extends WebPage {
+
+  private static final long serialVersionUID = 1L;
+
+  @AutoComponent WebMarkupContainer c1;
+  @AutoComponent WebMarkupContainer c2;
+  @AutoComponent WebMarkupContainer c3;
+  @AutoComponent WebMarkupContainer c4;
+  @AutoComponent WebMarkupContainer c5;
+  @AutoComponent WebMarkupContainer c6;
+  @AutoComponent WebMarkupContainer c7;
+  @AutoComponent WebMarkupContainer c8;
+
+  @AutoComponent Label l1;
+  @AutoComponent Label l2;
+  @AutoComponent Label l3;
+  @AutoComponent Label l4;
+  @AutoComponent Label l5;
+  @AutoComponent Label l6;
+  @AutoComponent Label l7;
+  @AutoComponent Label l8;
+
+}
@@ -0,0 +1,87 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law
+ * or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.github.wicket.autowire.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.wicket.Page;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.wicket.autowire.AutoWire;
+import com.github.wicket.autowire.BasicPage;
+import com.github.wicket.autowire.BorderPage;
+
+/**
+ * AutoWire.onInitialize, i.e. looking up the markup plan and adding the
+ * components to their parents. A new page is created before each invocation.
+ * <ul>
+ * <li>shallow: two components added to the page</li>
+ * <li>deep: eight nested containers</li>
+ * <li>border: components added to a border and its body</li>
+ * </ul>
+ * With a cached markup plan (hit) or after clearing all caches (miss).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class InitializationBenchmark {
+
+  @Param({ "shallow", "deep", "border" })
+  public String markup;
+
+  @Param({ "hit", "miss" })
+  public String cache;
+
+  private AutoWire autoWire;
+
+  private Page page;
+
+  @Setup(Level.Invocation)
+  public void setUp(WicketState wicket) {
+    if ("miss".equals(cache)) {
+      wicket.reinstall();
+    }
+    autoWire = wicket.getAutoWire();
+    if ("shallow".equals(markup)) {
+      page = new BasicPage();
+    }
+    else if ("deep".equals(markup)) {
+      page = new DeepPage();
+    }
+    else {
+      page = new BorderPage();
+    }
+  }
+
+  @Benchmark
+  public Page initialize() {
+    autoWire.onInitialize(page);
+    return page;
+  }
+
+}
@@ -0,0 +1,71 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law
+ * or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.github.wicket.autowire.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.wicket.Component;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.wicket.autowire.BasicPanel;
+import com.github.wicket.autowire.BasicPanelNoAuto;
+
+/**
+ * Construction of a panel with two auto-wired fields: AutoWire.onInstantiation
+ * with a cached class plan (hit), with empty caches (miss), and the same panel
+ * wired by hand.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InstantiationBenchmark {
+
+  @Benchmark
+  public Component hit(WicketState wicket) {
+    return new BasicPanel("panel");
+  }
+
+  @Benchmark
+  public Component miss(EmptyCaches caches) {
+    return new BasicPanel("panel");
+  }
+
+  @Benchmark
+  public Component manual(WicketState wicket) {
+    return new BasicPanelNoAuto("panel");
+  }
+
+  @State(Scope.Thread)
+  public static class EmptyCaches {
+
+    @Setup(Level.Invocation)
+    public void setUp(WicketState wicket) {
+      wicket.reinstall();
+    }
+
+  }
+
+}
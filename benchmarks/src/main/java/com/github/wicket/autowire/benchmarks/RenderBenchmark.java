@@ -0,0 +1,62 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law
+ * or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.github.wicket.autowire.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.wicket.Page;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.wicket.autowire.PerformanceCompareTest;
+import com.github.wicket.autowire.PerformanceTest;
+
+/**
+ * Renders a list of 1000 panels, auto-wired (PerformanceTest) or wired by hand
+ * (PerformanceCompareTest with BasicPanelNoAuto).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class RenderBenchmark {
+
+  @Param({ "autowire", "manual" })
+  public String wiring;
+
+  private Class<? extends Page> pageClass;
+
+  @Setup
+  public void setUp() {
+    pageClass = "autowire".equals(wiring) ? PerformanceTest.class : PerformanceCompareTest.class;
+  }
+
+  @Benchmark
+  public String render(WicketState wicket) {
+    wicket.getTester().startPage(pageClass);
+    return wicket.getTester().getLastResponseAsString();
+  }
+
+}
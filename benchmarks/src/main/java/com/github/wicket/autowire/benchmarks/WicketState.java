@@ -0,0 +1,62 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law
+ * or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.github.wicket.autowire.benchmarks;
+
+import org.apache.wicket.Application;
+import org.apache.wicket.util.tester.WicketTester;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.github.wicket.autowire.AutoWire;
+import com.github.wicket.autowire.AutoWireSettings;
+import com.github.wicket.autowire.AutoWireTester;
+
+/**
+ * Wicket application with auto wiring, bound to the benchmark thread.
+ */
+@State(Scope.Thread)
+public class WicketState {
+
+  private WicketTester tester;
+
+  @Setup
+  public void setUp() {
+    tester = new AutoWireTester();
+  }
+
+  @TearDown
+  public void tearDown() {
+    tester.destroy();
+  }
+
+  public WicketTester getTester() {
+    return tester;
+  }
+
+  public AutoWire getAutoWire() {
+    return AutoWire.get(tester.getApplication());
+  }
+
+  /**
+   * Installs auto wiring with empty caches.
+   */
+  public void reinstall() {
+    Application application = tester.getApplication();
+    AutoWire.uninstall(application);
+    AutoWire.install(application, new AutoWireSettings());
+  }
+
+}
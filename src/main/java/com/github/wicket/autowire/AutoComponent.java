@@ -26,4 +26,12 @@ public @interface AutoComponent {
 
   boolean inject() default true;
 
+  /**
+   * Creates the component when its place in the hierarchy is rendered for the
+   * first time, instead of on instantiation. The field is null until then, a
+   * placeholder with the same id takes its place. Lazy components are never
+   * created, if one of their parents stays hidden.
+   */
+  boolean lazy() default false;
+
 }
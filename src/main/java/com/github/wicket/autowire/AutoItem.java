@@ -0,0 +1,46 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law
+ * or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.github.wicket.autowire;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import org.apache.wicket.Component;
+
+/**
+ * Declares the component, that is added to each item of an auto-wired list
+ * view. The field must also be annotated with {@link AutoComponent} and be of
+ * type {@link org.apache.wicket.markup.html.list.ListView} or
+ * {@link AutoListView}.
+ * 
+ * <pre>
+ * &#64;AutoComponent
+ * &#64;AutoItem(id = "name", type = Label.class)
+ * private ListView&lt;String&gt; names;
+ * </pre>
+ * 
+ * The item component is created with its wicket id as only argument and gets
+ * the model of the list item, unless it creates a model of its own.
+ */
+@Target(ElementType.FIELD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface AutoItem {
+
+  String id();
+
+  Class<? extends Component> type();
+
+}
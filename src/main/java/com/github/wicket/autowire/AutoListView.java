@@ -0,0 +1,59 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law
+ * or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.github.wicket.autowire;
+
+import org.apache.wicket.Component;
+import org.apache.wicket.markup.html.list.ListItem;
+import org.apache.wicket.markup.html.list.ListView;
+
+/**
+ * List view created for fields annotated with {@link AutoItem}. Each item gets
+ * one component of the declared type.
+ */
+public class AutoListView<T> extends ListView<T> {
+
+  private static final long serialVersionUID = 1L;
+
+  // passed as enclosing instance to inner item classes
+  private final Component enclosing;
+
+  private final Class<? extends Component> itemType;
+
+  private final String itemId;
+
+  // method handles are not serializable, looked up again after deserialization
+  private transient ComponentFactory factory;
+
+  AutoListView(String id, Component enclosing, Class<? extends Component> itemType, String itemId,
+               ComponentFactory factory) {
+    super(id);
+    this.enclosing = enclosing;
+    this.itemType = itemType;
+    this.itemId = itemId;
+    this.factory = factory;
+  }
+
+  @Override
+  protected void populateItem(ListItem<T> item) {
+    if (factory == null) {
+      factory = ComponentFactory.of(itemType, enclosing.getClass(), itemId);
+    }
+    Component component = factory.newInstance(enclosing, itemId);
+    if (component.getDefaultModel() == null) {
+      component.setDefaultModel(item.getModel());
+    }
+    item.add(component);
+  }
+
+}
@@ -13,100 +13,606 @@
  */
 package com.github.wicket.autowire;
 
-import java.lang.reflect.Constructor;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.WeakReference;
 import java.lang.reflect.Field;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Modifier;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
 
 import org.apache.wicket.Application;
 import org.apache.wicket.Component;
+import org.apache.wicket.IApplicationListener;
 import org.apache.wicket.MarkupContainer;
+import org.apache.wicket.MetaDataKey;
 import org.apache.wicket.application.IComponentInitializationListener;
 import org.apache.wicket.application.IComponentInstantiationListener;
 import org.apache.wicket.markup.*;
 import org.apache.wicket.markup.html.TransparentWebMarkupContainer;
 import org.apache.wicket.markup.html.border.Border;
 import org.apache.wicket.markup.html.list.ListItem;
+import org.apache.wicket.markup.repeater.AbstractRepeater;
 import org.apache.wicket.markup.resolver.WicketContainerResolver;
+import org.apache.wicket.request.cycle.AbstractRequestCycleListener;
+import org.apache.wicket.request.cycle.IRequestCycleListener;
+import org.apache.wicket.request.cycle.RequestCycle;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import static java.util.Map.Entry;
+public final class AutoWire implements IComponentInitializationListener, IComponentInstantiationListener,
+                                       IApplicationListener {
+
+  private static final Logger log = LoggerFactory.getLogger(AutoWire.class);
+
+  private static final MetaDataKey<AutoWire> KEY = new MetaDataKey<AutoWire>() {
+
+    private static final long serialVersionUID = 1L;
+
+  };
+
+  private final Application application;
+
+  private final AutoWireSettings settings;
+
+  private final ComponentCache cache = new ComponentCache();
+
+  private volatile ClassValue<Declarations> declarations = newDeclarations();
+
+  private final MarkupKey.Cache markupKeys;
+
+  private final CacheStatistics classCacheStatistics = new CacheStatistics();
+
+  private final CacheStatistics markupCacheStatistics = new CacheStatistics();
+
+  private final CacheStatistics markupKeyCacheStatistics = new CacheStatistics();
+
+  private final LatencyHistogram instantiationLatency = new LatencyHistogram();
 
-public final class AutoWire implements IComponentInitializationListener, IComponentInstantiationListener {
+  private final LatencyHistogram initializationLatency = new LatencyHistogram();
 
-  private static final Logger log = LoggerFactory.getLogger(Component.class);
+  private final AutoWireMetrics metrics;
 
-  private AutoWire() {
+  private final long slowWiringThreshold;
 
+  private final Statistics statistics = new Statistics();
+
+  private final PlanCompiler compiler;
+
+  private final MarkupWatch watch;
+
+  private final boolean profiling;
+
+  private volatile WiringProfile lastProfile;
+
+  // remembers the profile of each request, registered if profiling
+  private final IRequestCycleListener profileListener = new AbstractRequestCycleListener() {
+
+    @Override
+    public void onDetach(RequestCycle cycle) {
+      WiringProfile profile = WiringProfile.get(cycle);
+      if (profile != null) {
+        lastProfile = profile;
+      }
+    }
+
+  };
+
+  // started with the first markup plan cache
+  private final AtomicReference<ScheduledExecutorService> maintenance = new AtomicReference<ScheduledExecutorService>();
+
+  private final Executor maintenanceExecutor = new Executor() {
+
+    @Override
+    public void execute(Runnable command) {
+      // rejected after uninstall
+      getMaintenance().execute(command);
+    }
+
+  };
+
+  private AutoWire(final Application application, final AutoWireSettings settings) {
+    this.application = application;
+    this.settings = settings;
+    this.markupKeys = new MarkupKey.Cache(settings.getMarkupKeyCacheSize(), markupKeyCacheStatistics);
+    this.metrics = settings.getMetrics() == null ? NO_METRICS : settings.getMetrics();
+    this.slowWiringThreshold = TimeUnit.MILLISECONDS.toNanos(settings.getSlowWiringThreshold());
+    this.compiler = new PlanCompiler(settings.getCompileThreshold(), settings.getCompilerThreads());
+    this.watch = new MarkupWatch(this, application);
+    this.profiling = settings.isProfiling(application);
   }
 
-  private static final ComponentCache cache = new ComponentCache();
+  public static AutoWire install(final Application application) {
+    return install(application, new AutoWireSettings());
+  }
 
-  public static void install(final Application application) {
-    final AutoWire instance = new AutoWire();
+  /**
+   * Installs auto wiring. Caches are bound to the application and are cleared
+   * when it is destroyed.
+   */
+  public static AutoWire install(final Application application, final AutoWireSettings settings) {
+    if (get(application) != null) {
+      throw new IllegalStateException("AutoWire is already installed in application " + application.getName());
+    }
+    final AutoWire instance = new AutoWire(application, settings);
+    application.setMetaData(KEY, instance);
     application.getComponentInitializationListeners().add(instance);
     application.getComponentInstantiationListeners().add(instance);
+    application.getApplicationListeners().add(instance);
+    if (instance.profiling) {
+      application.getRequestCycleListeners().add(instance.profileListener);
+    }
+    if (settings.isRegisterMBean()) {
+      instance.registerMBean();
+    }
+    final File snapshot = settings.getSnapshotFile();
+    if (snapshot != null && snapshot.isFile()) {
+      try {
+        instance.loadSnapshot(snapshot);
+      }
+      catch (IOException e) {
+        log.warn("Unable to load auto wiring snapshot " + snapshot, e);
+      }
+      catch (RuntimeException e) {
+        // a snapshot is an optimization, it must never prevent the start
+        log.warn("Unable to load auto wiring snapshot " + snapshot, e);
+      }
+    }
+    return instance;
+  }
+
+  /**
+   * @return the installation of the application or null
+   */
+  public static AutoWire get(final Application application) {
+    return application.getMetaData(KEY);
+  }
+
+  /**
+   * Removes auto wiring from the application and clears its caches. Components
+   * created afterwards are not wired anymore.
+   */
+  public static void uninstall(final Application application) {
+    final AutoWire instance = get(application);
+    if (instance != null) {
+      application.getComponentInitializationListeners().remove(instance);
+      application.getComponentInstantiationListeners().remove(instance);
+      application.getApplicationListeners().remove(instance);
+      application.getRequestCycleListeners().remove(instance.profileListener);
+      application.setMetaData(KEY, null);
+      instance.unregisterMBean();
+      final File snapshot = instance.settings.getSnapshotFile();
+      try {
+        if (snapshot != null) {
+          instance.saveSnapshot(snapshot);
+        }
+      }
+      catch (IOException e) {
+        log.warn("Unable to save auto wiring snapshot " + snapshot, e);
+      }
+      catch (RuntimeException e) {
+        log.warn("Unable to save auto wiring snapshot " + snapshot, e);
+      }
+      finally {
+        // releases the executors and markup listeners, whatever happened above
+        instance.clear();
+      }
+    }
+  }
+
+  @Override
+  public void onAfterInitialized(final Application application) {
+    if (!settings.getWarmUpClasses().isEmpty() || !settings.getWarmUpPackages().isEmpty()) {
+      warmUp();
+    }
+  }
+
+  /**
+   * Builds the plans of the component classes and packages configured in the
+   * settings, so the first requests do not have to. Called automatically when
+   * the application is initialized.
+   */
+  public WarmUpReport warmUp() {
+    return new WarmUp(this, application, settings).run();
+  }
+
+  /**
+   * Writes the markup plans of all wired component classes to the file, so
+   * another installation can load them instead of walking the markup again.
+   * 
+   * @return the number of saved markup plans
+   */
+  public int saveSnapshot(final File file) throws IOException {
+    return PlanSnapshot.write(cache.values(), file);
+  }
+
+  /**
+   * Loads markup plans saved by {@link #saveSnapshot(File)}. Plans of
+   * component classes whose auto-wired fields changed are discarded.
+   * 
+   * @return the number of restored markup plans
+   */
+  public int loadSnapshot(final File file) throws IOException {
+    return PlanSnapshot.read(this, application.getApplicationSettings().getClassResolver(), file);
+  }
+
+  @Override
+  public void onBeforeDestroyed(final Application application) {
+    uninstall(application);
+  }
+
+  private void clear() {
+    final ScheduledExecutorService stopped = Executors.newSingleThreadScheduledExecutor();
+    stopped.shutdown();
+    final ScheduledExecutorService executor = maintenance.getAndSet(stopped);
+    if (executor != null) {
+      executor.shutdownNow();
+    }
+    compiler.shutdown();
+    cache.clear();
+    declarations = newDeclarations();
+    markupKeys.clear();
+    watch.clear();
+  }
+
+  /**
+   * @return the statistics, that are registered as MBean
+   */
+  public AutoWireMXBean getStatistics() {
+    return statistics;
+  }
+
+  private ObjectName getObjectName() throws MalformedObjectNameException {
+    return new ObjectName("com.github.wicket.autowire:type=AutoWire,application="
+                          + ObjectName.quote(application.getName()));
+  }
+
+  private void registerMBean() {
+    try {
+      ManagementFactory.getPlatformMBeanServer().registerMBean(statistics, getObjectName());
+    }
+    catch (JMException e) {
+      log.warn("Unable to register AutoWire MBean of application " + application.getName(), e);
+    }
+  }
+
+  private void unregisterMBean() {
+    try {
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      if (server.isRegistered(getObjectName())) {
+        server.unregisterMBean(getObjectName());
+      }
+    }
+    catch (JMException e) {
+      log.warn("Unable to unregister AutoWire MBean of application " + application.getName(), e);
+    }
+  }
+
+  /**
+   * @return the profile of the last request that wired components, null if
+   *         profiling is disabled
+   * @see AutoWireSettings#setProfiling(boolean)
+   */
+  public WiringProfile getLastProfile() {
+    return lastProfile;
+  }
+
+  /**
+   * @return hits, misses and evictions of the markup plan caches
+   */
+  public CacheStatistics getMarkupCacheStatistics() {
+    return markupCacheStatistics;
+  }
+
+  /**
+   * @return hits, misses and evictions of the cache of markup keys. Each miss
+   *         renders the elements of a markup fragment to key it.
+   * @see AutoWireSettings#setMarkupKeyCacheSize(int)
+   */
+  public CacheStatistics getMarkupKeyCacheStatistics() {
+    return markupKeyCacheStatistics;
+  }
+
+  private ScheduledExecutorService getMaintenance() {
+    ScheduledExecutorService executor = maintenance.get();
+    if (executor == null) {
+      executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+
+        @Override
+        public Thread newThread(Runnable r) {
+          Thread thread = new Thread(r, "AutoWire maintenance");
+          thread.setDaemon(true);
+          return thread;
+        }
+
+      });
+      if (maintenance.compareAndSet(null, executor)) {
+        // frozen plans do not expire, but the caches still keep their size
+        if (!watch.isFrozen()) {
+          executor.scheduleWithFixedDelay(new Runnable() {
+
+            @Override
+            public void run() {
+              maintain();
+            }
+
+          }, settings.getMaintenanceInterval(), settings.getMaintenanceInterval(), TimeUnit.MILLISECONDS);
+        }
+      }
+      else {
+        executor.shutdown();
+        executor = maintenance.get();
+      }
+    }
+    return executor;
+  }
+
+  /**
+   * Drops the markup plans and keys built from the given markup resource, e.g.
+   * because its file was modified.
+   */
+  void invalidate(final String resource) {
+    int count = 0;
+    for (Value value : cache.values()) {
+      count += value.invalidate(resource);
+    }
+    markupKeys.remove(resource);
+    if (log.isDebugEnabled()) {
+      log.debug("Markup " + resource + " changed, dropped " + count + " plans");
+    }
+  }
+
+  // evict expired markup plans
+  private void maintain() {
+    for (Value value : cache.values()) {
+      if (value.cache != null) {
+        try {
+          value.cache.maintain();
+        }
+        catch (RuntimeException e) {
+          log.warn("Markup plan cache maintenance failed", e);
+        }
+      }
+    }
+  }
+
+  private PlanCache<MarkupKey, MarkupPlan> newPlanCache(CacheStatistics statistics) {
+    // make sure expired plans are evicted even if no cache ever gets too large
+    getMaintenance();
+    long expiry = watch.isFrozen() ? Long.MAX_VALUE : settings.getMarkupCacheExpiry();
+    return new PlanCache<MarkupKey, MarkupPlan>(settings.getMarkupCacheSize(), expiry,
+                                          statistics, maintenanceExecutor);
   }
 
   @Override
   public void onInstantiation(final Component component) {
-    Value value = cache.get(component.getClass());
-    if (value == null) {
+    Value value = getValue(component.getClass());
+    if (value.isWired()) {
+      WiringProfile profile = profiling ? WiringProfile.forRequest() : null;
+      long start = System.nanoTime();
+      if (profile == null) {
+        value.performInstantiationActions(component);
+      }
+      else {
+        profile.enter();
+        try {
+          value.performInstantiationActions(component, profile);
+        }
+        finally {
+          // balanced even if wiring fails, so that later components are not nested
+          profile.instantiated(value.componentClass, System.nanoTime() - start);
+        }
+      }
+      long nanos = System.nanoTime() - start;
+
+      value.instantiations.increment();
+      value.instantiationTime.add(nanos);
+      instantiationLatency.record(nanos);
+      metrics.instantiated(value.componentClass, nanos);
+      WiringEvents.instantiated(value.componentClass, value.tier.actions.length, nanos);
+      if (nanos > slowWiringThreshold) {
+        log.warn("Slow auto wiring: instantiation of " + component.getClass().getName() + " took "
+                 + TimeUnit.NANOSECONDS.toMillis(nanos) + "ms");
+      }
+    }
+  }
+
+  /**
+   * @return the plan of the component class, built on first use
+   */
+  Value getValue(final Class<? extends Component> componentClass) {
+    Value value = cache.get(componentClass);
+    if (value != null) {
+      classCacheStatistics.recordHit();
+    }
+    else {
       if (log.isTraceEnabled()) {
-        log.trace("MISS");
+        log.trace("MISS " + componentClass.getName());
       }
 
-      synchronized (AutoWire.class) {
-        value = cache.get(component.getClass());
-        if (value == null) {
-          List<Action> actions = getInstantiationActions(component);
+      value = cache.get(componentClass, new Callable<Value>() {
+
+        @Override
+        public Value call() {
+          long start = System.nanoTime();
+          Declarations declarations = null;
+          Tier tier = Tier.NONE;
+          if (isAutoWiringPossible(componentClass) && settings.isInScope(componentClass)) {
+            declarations = getDeclarations(componentClass);
+            tier = declarations.getTier(!compiler.isTiered());
+          }
+          long nanos = System.nanoTime() - start;
 
-          value = new Value(actions);
-          cache.put(component.getClass(), value);
+          classCacheStatistics.recordMiss();
+          WiringEvents.classPlanBuilt(componentClass, tier.accessors.length, nanos);
+          if (tier.accessors.length == 0) {
+            return new Value(componentClass, null, Tier.NONE, compiler, watch, null, null, nanos);
+          }
+          WiringProfile profile = profiling ? WiringProfile.forRequest() : null;
+          if (profile != null) {
+            profile.classPlanBuilt(componentClass, nanos);
+          }
+          metrics.classPlanBuilt(componentClass, nanos);
+          // bounds and statistics per class, also if the declarations and plans are shared
+          CacheStatistics statistics = new CacheStatistics(markupCacheStatistics);
+          return new Value(componentClass, declarations, tier, compiler, watch, newPlanCache(statistics), statistics,
+                           nanos);
         }
-      }
+
+      });
     }
-    value.performInstantiationActions(component);
+    return value;
   }
 
-  private List<Action> getInstantiationActions(Component component) {
-    List<Action> actions = new ArrayList<Action>();
+  /**
+   * @return the auto-wired fields of the class and its super classes, shared
+   *         with the super class if the class declares none itself
+   */
+  Declarations getDeclarations(final Class<?> componentClass) {
+    return declarations.get(componentClass);
+  }
+
+  private ClassValue<Declarations> newDeclarations() {
+    return new ClassValue<Declarations>() {
 
-    if (isAutoWiringPossible(component)) {
-      Set<String> done = new HashSet<String>();
-      Class<?> clazz = component.getClass();
-      // iterate over class hierarchy
-      while (Component.class.isAssignableFrom(clazz)) {
+      @Override
+      protected Declarations computeValue(Class<?> type) {
         if (log.isTraceEnabled()) {
-          log.trace("looking for fields in class " + clazz);
+          log.trace("looking for fields in class " + type);
         }
-        // iterate over declared field
-        for (final Field field : clazz.getDeclaredFields()) {
+        Class<?> superclass = type.getSuperclass();
+        Declarations parent = Component.class.isAssignableFrom(superclass) ? get(superclass) : null;
+        List<Field> fields = new ArrayList<Field>();
+        for (final Field field : type.getDeclaredFields()) {
           if (field.isAnnotationPresent(AutoComponent.class)) {
-            AutoComponent ann = field.getAnnotation(AutoComponent.class);
-            if (ann.inject()) {
-              final String id = ann.id().isEmpty() ? field.getName() : ann.id();
-              // fields in super classes are ignored, if they are in subclasses too
-              if (!done.contains(id)) {
-                done.add(id);
-                Component value = getValue(component, field);
-                if (value == null) {
-                  actions.add(new AssignInstanceAction(field, id));
-                }
-                else {
-                  if (log.isTraceEnabled()) {
-                    log.trace("Field " + field.getName() + " is already initialized. skipping.");
-                  }
-                }
+            fields.add(field);
+          }
+        }
+        if (fields.isEmpty() && parent != null) {
+          return parent;
+        }
+        return new Declarations(type, parent, fields);
+      }
+
+    };
+  }
+
+  /**
+   * Composes the tier of the declaring class from the accessors and factories
+   * of its super class, only the fields of the class itself are inspected.
+   * 
+   * @param compiled
+   *          whether to build optimized accessors and factories, or cheap
+   *          interpreted ones
+   */
+  private Tier newTier(Declarations declarations, boolean compiled) {
+    Tier inherited = null;
+    if (declarations.parent != null) {
+      try {
+        inherited = declarations.parent.getTier(compiled);
+      }
+      catch (RuntimeException e) {
+        // a field hidden by the class may not be wireable in its super class
+        if (log.isDebugEnabled()) {
+          log.debug("Unable to reuse the plan of " + declarations.parent.declaringClass.getName(), e);
+        }
+      }
+    }
+
+    final Field[] fields = declarations.fields;
+    List<FieldAccessor> accessors = new ArrayList<FieldAccessor>(fields.length);
+    for (int i = 0; i < fields.length; i++) {
+      if (inherited != null && i >= declarations.own) {
+        accessors.add(inherited.accessors[i - declarations.own]);
+      }
+      else {
+        accessors.add(compiled ? FieldAccessor.of(fields[i], settings.isUseGeneratedWirers())
+                               : FieldAccessor.interpreted(fields[i]));
+      }
+    }
+
+    Map<Field, ComponentFactory> factories = new HashMap<Field, ComponentFactory>();
+    if (inherited != null) {
+      factories.putAll(inherited.factories);
+    }
+    Map<Field, ComponentFactory> lazyFactories = new HashMap<Field, ComponentFactory>();
+    List<Action> actions = getInstantiationActions(declarations.declaringClass, accessors, factories, lazyFactories,
+                                                   compiled);
+    return new Tier(accessors, actions, factories, lazyFactories, compiled);
+  }
+
+  /**
+   * @param factories
+   *          factories of the super class to reuse, receives the factories
+   *          created
+   * @param lazyFactories
+   *          receives the factories of lazy fields, they are created when
+   *          rendered and not on instantiation
+   */
+  private List<Action> getInstantiationActions(Class<?> componentClass, List<FieldAccessor> accessors,
+                                               Map<Field, ComponentFactory> factories,
+                                               Map<Field, ComponentFactory> lazyFactories, boolean compiled) {
+    List<Action> actions = new ArrayList<Action>();
+
+    Set<String> done = new HashSet<String>();
+    for (FieldAccessor accessor : accessors) {
+      AutoComponent ann = accessor.getField().getAnnotation(AutoComponent.class);
+      AutoItem item = accessor.getField().getAnnotation(AutoItem.class);
+      if (ann.inject() || item != null) {
+        final String id = accessor.getId();
+        // fields in super classes are ignored, if they are in subclasses too
+        if (!done.contains(id)) {
+          done.add(id);
+          // instantiation listeners run in the constructor of Component, before any field of a component class is
+          // initialized. Fields are therefore never assigned yet.
+          if (item != null) {
+            if (!accessor.getField().getType().isAssignableFrom(AutoListView.class)) {
+              throw new RuntimeException("Unable to initialize " + accessor.getName() + " with id " + id
+                                         + ". Fields annotated with @AutoItem must be of type ListView.");
+            }
+            ComponentFactory factory = factories.get(accessor.getField());
+            if (factory == null) {
+              factory = compiled ? ComponentFactory.of(item.type(), componentClass, item.id())
+                                 : ComponentFactory.interpreted(item.type(), componentClass, item.id());
+              factories.put(accessor.getField(), factory);
+            }
+            actions.add(new AssignListViewAction(accessor, factory, id, item));
+          }
+          else {
+            ComponentFactory factory = factories.get(accessor.getField());
+            if (factory == null) {
+              factory = compiled ? ComponentFactory.of(accessor.getField(), componentClass, id,
+                                                       settings.isUseGeneratedWirers())
+                                 : ComponentFactory.interpreted(accessor.getField().getType(), componentClass, id);
+              factories.put(accessor.getField(), factory);
+            }
+            if (accessor.isLazy()) {
+              // placeholders cannot tell the border from its body
+              if (Border.class.isAssignableFrom(accessor.getField().getType())) {
+                throw new RuntimeException("Unable to initialize " + accessor.getName() + " with id " + id
+                                           + ". Borders cannot be created lazily.");
               }
+              lazyFactories.put(accessor.getField(), factory);
+            }
+            else {
+              actions.add(new AssignInstanceAction(accessor, factory, id));
             }
           }
         }
-        clazz = clazz.getSuperclass();
       }
     }
 
@@ -117,173 +623,435 @@ public final class AutoWire implements IComponentInitializationListener, ICompon
     return actions;
   }
 
-  private static Component getValue(Component component, Field field) {
-    boolean accessible = field.isAccessible();
-    field.setAccessible(true);
-    try {
-      Component value = (Component) field.get(component);
-      field.setAccessible(accessible);
-      return value;
-    }
-    catch (IllegalAccessException e) {
-      return null;
-    }
-  }
-
   @Override
   public void onInitialize(final Component component) {
-    if (isAutoWiringPossible(component)) {
+    Value value = cache.get(component.getClass());
+    // classes without auto-wired fields do not need their markup
+    if (value != null && value.isWired()) {
+      WiringProfile profile = profiling ? WiringProfile.forRequest() : null;
+      if (profile != null) {
+        profile.enter();
+      }
+      long start = System.nanoTime();
+      MarkupPlan plan;
       try {
-        Value value = cache.get(component.getClass());
-        value.performInitializeActions(component);
+        plan = value.performInitializeActions(component, markupKeys, metrics, profile);
       }
       catch (final MarkupNotFoundException e) {
         return;
       }
+      finally {
+        if (profile != null) {
+          profile.initialized(value.componentClass, System.nanoTime() - start);
+        }
+      }
+      long nanos = System.nanoTime() - start;
+
+      value.initializations.increment();
+      value.initializationTime.add(nanos);
+      initializationLatency.record(nanos);
+      metrics.initialized(value.componentClass, nanos);
+      WiringEvents.initialized(value.componentClass, plan == null ? null : plan.key,
+                               plan == null ? 0 : plan.children, nanos);
+      if (nanos > slowWiringThreshold) {
+        log.warn("Slow auto wiring: initialization of " + component.getClass().getName() + " took "
+                 + TimeUnit.NANOSECONDS.toMillis(nanos) + "ms");
+      }
     }
   }
 
-  private boolean isAutoWiringPossible(final Component component) {
-    return component instanceof MarkupContainer && !(component instanceof TransparentWebMarkupContainer);
+  private boolean isAutoWiringPossible(final Class<? extends Component> componentClass) {
+    return MarkupContainer.class.isAssignableFrom(componentClass)
+           && !TransparentWebMarkupContainer.class.isAssignableFrom(componentClass);
   }
 
-  private static Component buildComponent(Component component, final String id, Node child) {
-    Class<?> clazz = component.getClass();
-    while (Component.class.isAssignableFrom(clazz)) {
-      try {
-        Field field = null;
-        Component value = null;
-        // look for annotated field
-        for (Field iter : clazz.getDeclaredFields()) {
-          if (iter.isAnnotationPresent(AutoComponent.class)) {
-            value = getValue(component, iter);
-            if (value != null && value.getId().equals(id)) {
-              child.field = iter;
-              break;
-            }
-            else {
-              value = null;
-            }
-          }
-        }
-        if (value != null) {
-          return value;
+  /**
+   * @return index of the first field with each id. Fields of subclasses come
+   *         first, so they hide fields of super classes with the same id.
+   */
+  private static Map<String, Integer> index(String[] ids) {
+    Map<String, Integer> index = new HashMap<String, Integer>();
+    for (int i = 0; i < ids.length; i++) {
+      if (ids[i] != null && !index.containsKey(ids[i])) {
+        index.put(ids[i], i);
+      }
+    }
+    return index;
+  }
+
+  static class Value {
+
+    private final Class<? extends Component> componentClass;
+    // null if the class is not wired
+    private final Declarations declarations;
+    // interpreted until the class is hot, compiled afterwards
+    private volatile Tier tier;
+    private final PlanCompiler compiler;
+    private final AtomicInteger uses = new AtomicInteger();
+    private final MarkupWatch watch;
+    // frozen plans only, the last markup seen and its plan
+    private volatile LastPlan last;
+    // null if the class is not wired
+    private final PlanCache<MarkupKey, MarkupPlan> cache;
+    private final CacheStatistics cacheStatistics;
+
+    // statistics, nanoseconds
+    private final long classPlanTime;
+    private final LongAdder instantiations = new LongAdder();
+    private final LongAdder instantiationTime = new LongAdder();
+    private final LongAdder initializations = new LongAdder();
+    private final LongAdder initializationTime = new LongAdder();
+    private final LongAdder markupPlanTime = new LongAdder();
+
+    public Value(Class<? extends Component> componentClass, Declarations declarations, Tier tier,
+                 PlanCompiler compiler, MarkupWatch watch, PlanCache<MarkupKey, MarkupPlan> cache,
+                 CacheStatistics cacheStatistics, long classPlanTime) {
+      this.componentClass = componentClass;
+      this.declarations = declarations;
+      this.tier = tier;
+      this.compiler = compiler;
+      this.watch = watch;
+      this.cache = cache;
+      this.cacheStatistics = cacheStatistics;
+      this.classPlanTime = classPlanTime;
+    }
+
+    public ComponentClassStatistics getStatistics() {
+      return new ComponentClassStatistics(componentClass.getName(), classPlanTime, instantiations.sum(),
+                                          instantiationTime.sum(), initializations.sum(),
+                                          initializationTime.sum(), cache.size(), markupPlanTime.sum(),
+                                          cacheStatistics, tier.compiled);
+    }
+
+    /**
+     * @return false if the component class declares no auto-wired fields, or
+     *         is out of scope.
+     */
+    public boolean isWired() {
+      return tier.accessors.length > 0;
+    }
+
+    /**
+     * @return true if the compiled accessors and actions are in use
+     */
+    public boolean isCompiled() {
+      return tier.compiled;
+    }
+
+    /**
+     * @return true if all fields are accessed through generated wirers
+     */
+    boolean isGenerated() {
+      for (FieldAccessor accessor : tier.accessors) {
+        if (!accessor.isGenerated()) {
+          return false;
         }
       }
-      catch (final SecurityException e) {
-        throw new RuntimeException(e);
+      return isWired();
+    }
+
+    public void performInstantiationActions(Component component) {
+      final Tier tier = this.tier;
+      final Action[] actions = tier.actions;
+      for (int i = 0; i < actions.length; i++) {
+        actions[i].perform(component);
       }
-      catch (final IllegalArgumentException e) {
-        throw new RuntimeException(e);
+      used(tier);
+    }
+
+    /**
+     * Performs the actions and records the time of each field.
+     */
+    public void performInstantiationActions(Component component, WiringProfile profile) {
+      final Tier tier = this.tier;
+      final Action[] actions = tier.actions;
+      for (int i = 0; i < actions.length; i++) {
+        long start = System.nanoTime();
+        actions[i].perform(component);
+        profile.created(actions[i].getField(), System.nanoTime() - start);
       }
-      clazz = clazz.getSuperclass();
+      used(tier);
     }
 
-    return null;
-  }
+    // compiles the class once it is hot
+    private void used(Tier tier) {
+      if (!tier.compiled && compiler.isHot(uses.incrementAndGet())) {
+        compiler.submit(new Runnable() {
 
-  // set value on duplicated field of parent classes too!
-  private static void setValue(Component instance, final Component component, Field field) throws IllegalAccessException {
-    Class<?> clazz = field.getDeclaringClass();
-    while (Component.class.isAssignableFrom(clazz)) {
-      for (Field f : clazz.getDeclaredFields()) {
-        if (f.getName().equals(field.getName())) {
-          boolean accessible = f.isAccessible();
-          f.setAccessible(true);
-          f.set(component, instance);
-          f.setAccessible(accessible);
-        }
+          @Override
+          public void run() {
+            compile();
+          }
+
+        });
       }
-      clazz = clazz.getSuperclass();
     }
-  }
 
-  private Component getInstance(final Class<?> componentClass, final Component enclosing, final String id) throws NoSuchMethodException,
-                                                                                                          InstantiationException,
-                                                                                                          IllegalAccessException,
-                                                                                                          IllegalArgumentException,
-                                                                                                          InvocationTargetException {
-    if (componentClass.getEnclosingClass() == null || Modifier.isStatic(componentClass.getModifiers())) {
-      // -- Static inner class or normal class
-      final Constructor<?> constructor = componentClass.getDeclaredConstructor(String.class);
-      constructor.setAccessible(true);
-      return (Component) constructor.newInstance(id);
+    public Class<? extends Component> getComponentClass() {
+      return componentClass;
     }
-    else {
-      if (enclosing != null && componentClass.getEnclosingClass().isAssignableFrom(enclosing.getClass())) {
-        final Constructor<?> constructor = componentClass.getDeclaredConstructor(componentClass.getEnclosingClass(),
-                                                                                 String.class);
-        constructor.setAccessible(true);
-        return (Component) constructor.newInstance(enclosing, id);
+
+    /**
+     * @return hash over the declaring class, name, type and id of the wired
+     *         fields. Plans refer to the fields by index, they are only valid
+     *         for classes with the same fingerprint.
+     */
+    public long getFingerprint() {
+      long fingerprint = 0xcbf29ce484222325L;
+      for (FieldAccessor accessor : tier.accessors) {
+        Field field = accessor.getField();
+        String signature = field.getDeclaringClass().getName() + '#' + field.getName() + ':'
+                           + field.getType().getName() + '=' + accessor.getId() + ';';
+        for (int i = 0; i < signature.length(); i++) {
+          fingerprint ^= signature.charAt(i);
+          fingerprint *= 0x100000001b3L;
+        }
       }
-      throw new RuntimeException("Unable to initialize inner class "
-                                 + componentClass.getClass().getSimpleName() + " with id " + id
-                                 + ". Enclosing class is not in the component hierarchy.");
+      return fingerprint;
     }
-  }
 
-  private static class Value {
+    /**
+     * @return the compiled markup plans currently cached
+     */
+    public Map<MarkupKey, WiringPlan> getPlans() {
+      Map<MarkupKey, WiringPlan> plans = new HashMap<MarkupKey, WiringPlan>();
+      if (cache != null) {
+        for (Map.Entry<MarkupKey, MarkupPlan> entry : cache.toMap().entrySet()) {
+          plans.put(entry.getKey(), entry.getValue().toPlan());
+        }
+      }
+      return plans;
+    }
 
-    private List<Action> instantiationActions;
-    private Map<String, Node> cache = new ConcurrentHashMap<String, Node>();
+    /**
+     * Drops the plans built from the given markup resource.
+     * 
+     * @return the number of dropped plans
+     */
+    public int invalidate(String resource) {
+      if (cache == null) {
+        return 0;
+      }
+      declarations.plans.invalidate(resource);
+      int count = 0;
+      for (MarkupKey key : cache.toMap().keySet()) {
+        if (key.getResource().equals(resource)) {
+          cache.invalidate(key);
+          count++;
+        }
+      }
+      return count;
+    }
+
+    /**
+     * Caches a plan built by another installation, unless a plan of the markup
+     * is cached already.
+     * 
+     * @return false if the plan does not fit the fields of the class
+     */
+    public boolean restore(final MarkupKey key, final WiringPlan plan) {
+      if (!isWired() || !plan.fits(tier.accessors.length)) {
+        return false;
+      }
+      cache.restore(key, declarations.plans.share(key, new MarkupPlan(key, plan)));
+      return true;
+    }
 
-    public Value(List<Action> instantiationActions) {
-      this.instantiationActions = instantiationActions;
+    /**
+     * Creates the component of a lazy field and assigns it, unless the field
+     * has been assigned in the meantime.
+     * 
+     * @return the component of the field
+     */
+    public Component realize(Component component, Field field) {
+      final Tier tier = this.tier;
+      final ComponentFactory factory = tier.lazyFactories.get(field);
+      if (factory == null) {
+        throw new IllegalStateException("Field " + field + " of " + componentClass.getName() + " is not lazy");
+      }
+      for (FieldAccessor accessor : tier.accessors) {
+        if (accessor.getField().equals(field)) {
+          Component value = accessor.get(component);
+          if (value == null) {
+            value = factory.newInstance(component, accessor.getId());
+            accessor.set(component, value);
+          }
+          return value;
+        }
+      }
+      throw new IllegalStateException("Field " + field + " of " + componentClass.getName() + " is not wired");
     }
 
-    public void performInstantiationActions(Component component) {
-      for (Action action : instantiationActions) {
-        action.perform(component);
+    /**
+     * Swaps in the compiled accessors and actions, if not done yet.
+     */
+    public void compile() {
+      if (!tier.compiled) {
+        tier = declarations.getTier(true);
+        if (log.isDebugEnabled()) {
+          log.debug("Compiled auto wiring plan of " + componentClass.getName());
+        }
       }
     }
 
-    public void performInitializeActions(Component component) {
+    /**
+     * @return the markup plan used, null if the component has no markup
+     */
+    public MarkupPlan performInitializeActions(final Component component, MarkupKey.Cache markupKeys,
+                                               final AutoWireMetrics metrics, final WiringProfile profile) {
+      final FieldAccessor[] accessors = tier.accessors;
+
       final IMarkupFragment markup = ((MarkupContainer) component).getMarkup(null);
 
       if (markup == null) {
-        return;
+        return null;
+      }
+
+      // items of a repeater share the plan of the first item with the same markup
+      AbstractRepeater repeater = RepeaterPlans.getRepeater(component);
+      RepeaterPlans repeaterPlans = repeater == null ? null : RepeaterPlans.get();
+      if (repeaterPlans != null) {
+        MarkupPlan plan = repeaterPlans.get(repeater, component, markup);
+        if (plan != null) {
+          cacheStatistics.recordHit();
+          if (profile != null) {
+            profile.markupCacheHit(componentClass);
+          }
+          plan.initialize(component, accessors, compiler);
+          return plan;
+        }
       }
 
-      String key = markup.toString(false);
-      Node node = cache.get(key);
-      if (node == null) {
+      // markup never changes if frozen, the same markup is the same plan
+      final LastPlan last = this.last;
+      if (last != null && last.matches(markup)) {
+        cacheStatistics.recordHit();
+        if (profile != null) {
+          profile.markupCacheHit(componentClass);
+        }
+        if (repeaterPlans != null) {
+          repeaterPlans.put(repeater, component, markup, last.plan);
+        }
+        last.plan.initialize(component, accessors, compiler);
+        return last.plan;
+      }
+
+      final MarkupKey key = markupKeys.get(markup);
+      MarkupPlan plan = cache.get(key);
+      if (plan != null && profile != null) {
+        profile.markupCacheHit(componentClass);
+      }
+      if (plan == null) {
         if (log.isTraceEnabled()) {
           log.trace("MARKUP MISS");
         }
-        synchronized (AutoWire.class) {
-          node = cache.get(key);
-          if (node == null) {
-            node = getNode(component, markup);
-            cache.put(key, node);
+        plan = cache.get(key, new Callable<MarkupPlan>() {
+
+          @Override
+          public MarkupPlan call() {
+            // built by another class with the same fields
+            MarkupPlan plan = declarations.plans.get(key);
+            if (plan != null) {
+              return plan;
+            }
+            long start = System.nanoTime();
+            plan = new MarkupPlan(key, getNode(componentClass, component, markup), !compiler.isTiered());
+            long nanos = System.nanoTime() - start;
+            markupPlanTime.add(nanos);
+            metrics.markupPlanBuilt(componentClass, nanos);
+            WiringEvents.markupPlanBuilt(componentClass, key, plan.children, nanos);
+            if (profile != null) {
+              profile.markupPlanBuilt(componentClass, nanos);
+            }
+            watch.watch(markup);
+            return declarations.plans.share(key, plan);
           }
-        }
+
+        });
+      }
+      if (watch.isFrozen()) {
+        this.last = new LastPlan(markup, plan);
       }
 
-      node.lastUsed = System.currentTimeMillis();
-      node.initialize(component);
+      if (repeaterPlans != null) {
+        repeaterPlans.put(repeater, component, markup, plan);
+      }
+      plan.initialize(component, accessors, compiler);
+      return plan;
+    }
 
-      cleanup();
+    /**
+     * Builds the plan of the given markup ahead of time, without a component
+     * instance.
+     * 
+     * @return false if the class is not wired
+     */
+    public boolean prepare(final Class<? extends Component> componentClass, final IMarkupFragment markup) {
+      if (!isWired()) {
+        return false;
+      }
+      // nothing to gain from interpreting ahead of time
+      compile();
+      final MarkupKey key = MarkupKey.of(markup);
+      cache.get(key, new Callable<MarkupPlan>() {
+
+        @Override
+        public MarkupPlan call() {
+          MarkupPlan plan = declarations.plans.get(key);
+          if (plan != null) {
+            return plan;
+          }
+          watch.watch(markup);
+          long start = System.nanoTime();
+          plan = new MarkupPlan(key, getNode(componentClass, null, markup), true);
+          WiringEvents.markupPlanBuilt(componentClass, key, plan.children, System.nanoTime() - start);
+          return declarations.plans.share(key, plan);
+        }
+
+      });
+      return true;
     }
 
-    // avoid memory leaks if makup is changing often.
-    private void cleanup() {
-      long treshold = System.currentTimeMillis() - 8 * 24 * 60 * 60 * 1000;
-      if (cache.size() > 30) {
-        for (Iterator<Entry<String, Node>> iterator = cache.entrySet().iterator(); iterator.hasNext();) {
-          Entry<String, Node> next = iterator.next();
-          if (next.getValue().lastUsed < treshold) {
-            iterator.remove();
+    /**
+     * Walks the markup. Ids and types of the wired components are taken from
+     * the component, if there is one, or from the field declarations
+     * otherwise.
+     */
+    private Node getNode(Class<? extends Component> componentClass, Component component, IMarkupFragment markup) {
+      final FieldAccessor[] accessors = tier.accessors;
+
+      final String[] ids = new String[accessors.length];
+      final Class<?>[] types = new Class<?>[accessors.length];
+      for (int i = 0; i < ids.length; i++) {
+        FieldAccessor accessor = accessors[i];
+        if (component == null) {
+          ids[i] = accessor.getId();
+          types[i] = accessor.getField().getType();
+        }
+        else {
+          Component value = accessor.get(component);
+          if (value != null) {
+            ids[i] = value.getId();
+            types[i] = value.getClass();
+          }
+          else if (accessor.isLazy()) {
+            // wired as placeholder, that is not created just to build the plan
+            ids[i] = accessor.getId();
+            types[i] = LazyPlaceholder.class;
           }
         }
       }
-    }
 
-    private Node getNode(Component component, IMarkupFragment markup) {
+      // components usually have the ids of their fields
+      final Map<String, Integer> index = Arrays.equals(ids, declarations.ids) ? declarations.fieldsById
+                                                                               : index(ids);
 
       final MarkupStream stream = new MarkupStream(markup);
 
-      final Stack<AtomicReference<Component>> stack = new Stack<AtomicReference<Component>>();
-      stack.push(new AtomicReference<Component>(component));
+      // types of the open components, null if not auto-wired
+      Class<?>[] stack = new Class<?>[16];
+      int depth = 0;
+      stack[depth++] = componentClass;
 
       Node node = new Node();
 
@@ -291,13 +1059,13 @@ public final class AutoWire implements IComponentInitializationListener, ICompon
       boolean addToBorder = false;
 
       if (log.isTraceEnabled()) {
-        log.trace("Performing auto wiring for component " + component);
+        log.trace("Performing auto wiring for component " + (component == null ? componentClass : component));
       }
 
       // no associated markup: component tag is part of the markup
       MarkupElement containerTag = null;
       // current criteria is fragile! find better way to check if component tag of component is part its markup.
-      if (skipFirstComponentTag(component, stream)) {
+      if (skipFirstComponentTag(componentClass, component == null ? null : component.getId(), stream)) {
         if (log.isTraceEnabled()) {
           log.trace("Skipped component tag " + stream.get());
         }
@@ -335,8 +1103,8 @@ public final class AutoWire implements IComponentInitializationListener, ICompon
         // maintain bread crumbs and build components
         if (isComponentTag(tag)) {
           if (tag.isOpen() || tag.isOpenClose()) {
-            final Component container = stack.peek().get();
-            final Component cmp;
+            final Class<?> container = stack[depth - 1];
+            final Class<?> cmp;
             final Node child = new Node();
 
             if (log.isTraceEnabled()) {
@@ -346,7 +1114,15 @@ public final class AutoWire implements IComponentInitializationListener, ICompon
               cmp = null;
             }
             else {
-              cmp = buildComponent(component, tag.getId(), child);
+              Integer field = index.get(tag.getId());
+              if (field == null) {
+                cmp = null;
+              }
+              else {
+                cmp = types[field];
+                child.field = field;
+                child.id = ids[field];
+              }
             }
 
             if (log.isTraceEnabled()) {
@@ -354,14 +1130,13 @@ public final class AutoWire implements IComponentInitializationListener, ICompon
             }
 
             if (cmp != null) {
-              if (container instanceof MarkupContainer) {
-                if (addToBorder && container instanceof Border) {
+              if (MarkupContainer.class.isAssignableFrom(container)) {
+                if (addToBorder && Border.class.isAssignableFrom(container)) {
                   child.border = true;
                 }
                 else {
                   child.border = false;
                 }
-                child.id = cmp.getId();
                 node.add(child);
               }
               else if (container == null) {
@@ -369,8 +1144,8 @@ public final class AutoWire implements IComponentInitializationListener, ICompon
                                            + " was auto wired, but its parent not!");
               }
               else {
-                throw new RuntimeException("only containers may contain child elements. type of " + container
-                                           + " is not a container!");
+                throw new RuntimeException("only containers may contain child elements. type "
+                                           + container.getName() + " is not a container!");
               }
             }
             // push even if cmp is null, to track if parent is auto-wired
@@ -378,12 +1153,15 @@ public final class AutoWire implements IComponentInitializationListener, ICompon
               if (log.isTraceEnabled()) {
                 log.trace("Tag has a body. Adding to stack now.");
               }
-              stack.push(new AtomicReference<Component>(cmp));
+              if (depth == stack.length) {
+                stack = Arrays.copyOf(stack, depth * 2);
+              }
+              stack[depth++] = cmp;
               if (cmp != null) {
                 node = child;
               }
               if (log.isTraceEnabled()) {
-                log.trace("Current stack: " + stack);
+                log.trace("Current stack: " + Arrays.asList(stack).subList(0, depth));
               }
             }
           }
@@ -393,11 +1171,12 @@ public final class AutoWire implements IComponentInitializationListener, ICompon
               if (log.isTraceEnabled()) {
                 log.trace("Tag is closing. Pop the stack now.");
               }
-              if (stack.pop().get() != null) {
+              if (stack[--depth] != null) {
                 node = node.parent;
               }
+              stack[depth] = null;
               if (log.isTraceEnabled()) {
-                log.trace("Current stack: " + stack);
+                log.trace("Current stack: " + Arrays.asList(stack).subList(0, depth));
               }
             }
           }
@@ -407,19 +1186,18 @@ public final class AutoWire implements IComponentInitializationListener, ICompon
         }
         stream.next();
       }
-      if (stack.size() != 1) {
-        throw new RuntimeException("Stack must only contain one element " + stack);
+      if (depth != 1) {
+        throw new RuntimeException("Stack must only contain one element " + Arrays.asList(stack).subList(0, depth));
       }
 
       return node;
     }
 
-    private boolean skipFirstComponentTag(Component component, MarkupStream stream) {
-      if (stream.get() instanceof ComponentTag
-          && ((ComponentTag) stream.get()).getId().equals(component.getId())) {
+    private boolean skipFirstComponentTag(Class<?> componentClass, String id, MarkupStream stream) {
+      if (stream.get() instanceof ComponentTag && ((ComponentTag) stream.get()).getId().equals(id)) {
         return true;
       }
-      else if (component instanceof ListItem) {
+      else if (ListItem.class.isAssignableFrom(componentClass)) {
         return true;
       }
       else {
@@ -434,18 +1212,370 @@ public final class AutoWire implements IComponentInitializationListener, ICompon
 
   }
 
-  private static class ComponentCache extends ConcurrentHashMap<Class<? extends Component>, Value> {
+  private static final AutoWireMetrics NO_METRICS = new AutoWireMetrics() {
+
+    @Override
+    public void classPlanBuilt(Class<?> componentClass, long nanos) {
+
+    }
+
+    @Override
+    public void markupPlanBuilt(Class<?> componentClass, long nanos) {
+
+    }
+
+    @Override
+    public void instantiated(Class<?> componentClass, long nanos) {
+
+    }
+
+    @Override
+    public void initialized(Class<?> componentClass, long nanos) {
+
+    }
+
+  };
+
+  private class Statistics implements AutoWireMXBean {
+
+    @Override
+    public long getClassCacheHitCount() {
+      return classCacheStatistics.getHitCount();
+    }
+
+    @Override
+    public long getClassCacheMissCount() {
+      return classCacheStatistics.getMissCount();
+    }
+
+    @Override
+    public long getMarkupCacheHitCount() {
+      return markupCacheStatistics.getHitCount();
+    }
+
+    @Override
+    public long getMarkupCacheMissCount() {
+      return markupCacheStatistics.getMissCount();
+    }
+
+    @Override
+    public long getMarkupCacheEvictionCount() {
+      return markupCacheStatistics.getEvictionCount();
+    }
+
+    @Override
+    public long getMarkupCacheRestoreCount() {
+      return markupCacheStatistics.getRestoreCount();
+    }
+
+    @Override
+    public long getMarkupKeyCacheHitCount() {
+      return markupKeyCacheStatistics.getHitCount();
+    }
+
+    @Override
+    public long getMarkupKeyCacheMissCount() {
+      return markupKeyCacheStatistics.getMissCount();
+    }
+
+    @Override
+    public long getMarkupKeyCacheEvictionCount() {
+      return markupKeyCacheStatistics.getEvictionCount();
+    }
+
+    @Override
+    public long[] getInstantiationLatencyHistogram() {
+      return instantiationLatency.snapshot();
+    }
+
+    @Override
+    public long[] getInitializationLatencyHistogram() {
+      return initializationLatency.snapshot();
+    }
+
+    @Override
+    public List<ComponentClassStatistics> getComponentClasses() {
+      List<ComponentClassStatistics> result = new ArrayList<ComponentClassStatistics>();
+      for (Value value : cache.values()) {
+        if (value.isWired()) {
+          result.add(value.getStatistics());
+        }
+      }
+      return result;
+    }
 
   }
 
+  /**
+   * Values are attached to the component classes with a {@link ClassValue}, so
+   * the cache neither keeps classes nor their class loader alive.
+   */
+  private static class ComponentCache extends ComputingCache<Class<? extends Component>, Value> {
+
+    private volatile ClassValue<AtomicReference<Value>> values = newValues();
+
+    // weakly referenced holders of all values, to maintain and clear them
+    private final Queue<WeakReference<AtomicReference<Value>>> holders = new ConcurrentLinkedQueue<WeakReference<AtomicReference<Value>>>();
+
+    private ClassValue<AtomicReference<Value>> newValues() {
+      return new ClassValue<AtomicReference<Value>>() {
+
+        @Override
+        protected AtomicReference<Value> computeValue(Class<?> type) {
+          AtomicReference<Value> holder = new AtomicReference<Value>();
+          holders.add(new WeakReference<AtomicReference<Value>>(holder));
+          return holder;
+        }
+
+      };
+    }
+
+    @Override
+    public Value get(Class<? extends Component> key) {
+      return values.get(key).get();
+    }
+
+    @Override
+    protected void put(Class<? extends Component> key, Value value) {
+      values.get(key).set(value);
+    }
+
+    public List<Value> values() {
+      List<Value> result = new ArrayList<Value>();
+      for (Iterator<WeakReference<AtomicReference<Value>>> iterator = holders.iterator(); iterator.hasNext();) {
+        AtomicReference<Value> holder = iterator.next().get();
+        if (holder == null) {
+          // class has been unloaded
+          iterator.remove();
+        }
+        else if (holder.get() != null) {
+          result.add(holder.get());
+        }
+      }
+      return result;
+    }
+
+    public void clear() {
+      values = newValues();
+      for (WeakReference<AtomicReference<Value>> reference : holders) {
+        AtomicReference<Value> holder = reference.get();
+        if (holder != null) {
+          holder.set(null);
+        }
+      }
+      holders.clear();
+    }
+
+  }
+
+  /**
+   * Accessors and instantiation actions of a component class.
+   */
+  private static final class Tier {
+
+    // tier of classes, that are not wired
+    static final Tier NONE = new Tier(Collections.<FieldAccessor> emptyList(), Collections.<Action> emptyList(),
+                                      Collections.<Field, ComponentFactory> emptyMap(),
+                                      Collections.<Field, ComponentFactory> emptyMap(), false);
+
+    private final FieldAccessor[] accessors;
+    private final Action[] actions;
+    // factories of all injected fields, reused by subclasses
+    private final Map<Field, ComponentFactory> factories;
+    private final Map<Field, ComponentFactory> lazyFactories;
+    private final boolean compiled;
+
+    Tier(List<FieldAccessor> accessors, List<Action> actions, Map<Field, ComponentFactory> factories,
+         Map<Field, ComponentFactory> lazyFactories, boolean compiled) {
+      this.accessors = accessors.toArray(new FieldAccessor[accessors.size()]);
+      this.actions = actions.toArray(new Action[actions.size()]);
+      this.factories = factories;
+      this.lazyFactories = lazyFactories;
+      this.compiled = compiled;
+    }
+
+  }
+
+  /**
+   * Auto-wired fields of a class and its super classes. The fields of each
+   * class are looked up once, subclasses reuse the accessors and factories of
+   * their super class. A class without fields of its own, e.g. an anonymous
+   * subclass, shares the declarations of its super class. Its markup plans are
+   * shared too, their bounds and statistics are kept per class.
+   */
+  final class Declarations {
+
+    private final Class<?> declaringClass;
+    // declarations of the super class, null for the top of the hierarchy
+    private final Declarations parent;
+    // fields of the class first, followed by the fields of the super classes
+    private final Field[] fields;
+    // number of fields declared by the class itself
+    private final int own;
+    // declared wicket ids of the fields and the index of the first field with each id
+    private final String[] ids;
+    private final Map<String, Integer> fieldsById;
+    // markup plans of the classes sharing the declarations
+    private final SharedPlans plans = new SharedPlans();
+    private volatile Tier interpreted;
+    private volatile Tier compiled;
+
+    Declarations(Class<?> declaringClass, Declarations parent, List<Field> fields) {
+      this.declaringClass = declaringClass;
+      this.parent = parent;
+      this.own = fields.size();
+      if (parent != null) {
+        fields.addAll(Arrays.asList(parent.fields));
+      }
+      this.fields = fields.toArray(new Field[fields.size()]);
+      this.ids = new String[this.fields.length];
+      for (int i = 0; i < ids.length; i++) {
+        ids[i] = FieldAccessor.idOf(this.fields[i]);
+      }
+      this.fieldsById = index(ids);
+    }
+
+    /**
+     * @return the accessors and actions, built on first use
+     */
+    Tier getTier(boolean compiled) {
+      Tier tier = compiled ? this.compiled : this.interpreted;
+      if (tier == null) {
+        // concurrent builds are equivalent, the last one wins
+        tier = newTier(this, compiled);
+        if (compiled) {
+          this.compiled = tier;
+        }
+        else {
+          this.interpreted = tier;
+        }
+      }
+      return tier;
+    }
+
+  }
+
+  /**
+   * The plan of the markup a frozen component class has seen last.
+   */
+  private static final class LastPlan {
+
+    // markup elements are shared by all fragments of a loaded markup, and
+    // merged markup shares them with its base markup, see MarkupKey.Cache
+    private final MarkupElement first;
+    private final MarkupResourceStream stream;
+    private final int size;
+    private final MarkupPlan plan;
+
+    LastPlan(IMarkupFragment markup, MarkupPlan plan) {
+      this.first = markup.size() == 0 ? null : markup.get(0);
+      this.stream = markup.getMarkupResourceStream();
+      this.size = markup.size();
+      this.plan = plan;
+    }
+
+    boolean matches(IMarkupFragment markup) {
+      return first != null && markup.size() == size && markup.get(0) == first
+             && markup.getMarkupResourceStream() == stream;
+    }
+
+  }
+
+  /**
+   * Plan of a markup. The node tree of the markup walk is interpreted until
+   * the markup is hot, then it is compiled to a {@link WiringPlan} and
+   * dropped.
+   */
+  static final class MarkupPlan {
+
+    private final MarkupKey key;
+    // null once the compiled plan is published
+    private volatile Node root;
+    // number of components the plan adds to their parents
+    private final int children;
+    private volatile WiringPlan compiled;
+    private final AtomicInteger uses = new AtomicInteger();
+
+    MarkupPlan(MarkupKey key, Node root, boolean compile) {
+      this.key = key;
+      this.children = root.count();
+      if (compile) {
+        this.compiled = root.toPlan();
+      }
+      else {
+        this.root = root;
+      }
+    }
+
+    MarkupPlan(MarkupKey key, WiringPlan compiled) {
+      this.key = key;
+      this.children = compiled.size();
+      this.compiled = compiled;
+    }
+
+    /**
+     * @return the compiled plan, compiled now if needed
+     */
+    public WiringPlan toPlan() {
+      final WiringPlan plan = compiled;
+      if (plan != null) {
+        return plan;
+      }
+      final Node root = this.root;
+      // compiled in the meantime
+      return root != null ? root.toPlan() : compiled;
+    }
+
+    public void initialize(final Component component, final FieldAccessor[] accessors, PlanCompiler compiler) {
+      WiringPlan plan = compiled;
+      if (plan == null) {
+        final Node root = this.root;
+        if (root != null) {
+          root.interpret(component, component, accessors);
+          if (compiler.isHot(uses.incrementAndGet())) {
+            compiler.submit(new Runnable() {
+
+              @Override
+              public void run() {
+                compile();
+              }
+
+            });
+          }
+          return;
+        }
+        // compiled in the meantime
+        plan = compiled;
+      }
+      plan.initialize(component, accessors);
+    }
+
+    // publishes the compiled plan before the tree is dropped, see initialize
+    private void compile() {
+      final Node root = this.root;
+      if (root != null) {
+        compiled = root.toPlan();
+        this.root = null;
+      }
+    }
+
+    public boolean isCompiled() {
+      return compiled != null;
+    }
+
+  }
+
+  /**
+   * Component tree found by the markup walk. Interpreted directly or compiled
+   * to a {@link WiringPlan}.
+   */
   private static class Node {
 
     Node parent = null;
-    Field field = null;
+    int field = -1;
     List<Node> childNodes = new ArrayList<Node>();
     boolean border = false;
     public String id = null;
-    long lastUsed = System.currentTimeMillis();
 
     public void add(Node child) {
       child.parent = this;
@@ -454,26 +1584,87 @@ public final class AutoWire implements IComponentInitializationListener, ICompon
 
     @Override
     public String toString() {
-      return "Node{" + "field=" + ((field != null) ? field.getName() : null) + ", childNodes=" + childNodes
+      return "Node{" + "field=" + field + ", childNodes=" + childNodes
              + ", border=" + border + ", id='" + id + '\'' + '}';
     }
 
-    public void initialize(Component component) {
-      initialize(component, component);
-    }
-
-    private void initialize(Component root, Component parent) {
-      for (Node child : childNodes) {
-        Component value = getValue(root, child.field);
-        if (child.border) {
-          ((Border) parent).addToBorder(value);
+    /**
+     * Adds the components of the children to the container and descends. Like
+     * compiled plans, the children are added with one call to the body and one
+     * to the border.
+     */
+    public void interpret(final Component component, final Component container, final FieldAccessor[] accessors) {
+      final int size = childNodes.size();
+      if (size == 0) {
+        return;
+      }
+      final Component[] values = new Component[size];
+      int borders = 0;
+      for (int i = 0; i < size; i++) {
+        values[i] = accessors[childNodes.get(i).field].resolve(component);
+        if (childNodes.get(i).border) {
+          borders++;
         }
-        else {
-          ((MarkupContainer) parent).add(value);
+      }
+      if (borders == 0) {
+        ((MarkupContainer) container).add(values);
+      }
+      else {
+        final Component[] body = new Component[size - borders];
+        final Component[] border = new Component[borders];
+        for (int i = 0, b = 0, c = 0; i < size; i++) {
+          if (childNodes.get(i).border) {
+            border[c++] = values[i];
+          }
+          else {
+            body[b++] = values[i];
+          }
         }
-        if (!child.childNodes.isEmpty()) {
-          child.initialize(root, value);
+        if (body.length > 0) {
+          ((MarkupContainer) container).add(body);
         }
+        ((Border) container).addToBorder(border);
+      }
+      for (int i = 0; i < size; i++) {
+        childNodes.get(i).interpret(component, values[i], accessors);
+      }
+    }
+
+    /**
+     * @return the number of descendants
+     */
+    public int count() {
+      int count = childNodes.size();
+      for (int i = 0; i < childNodes.size(); i++) {
+        count += childNodes.get(i).count();
+      }
+      return count;
+    }
+
+    /**
+     * Compiles the children of this root node.
+     */
+    public WiringPlan toPlan() {
+      List<Node> nodes = new ArrayList<Node>();
+      List<Integer> parents = new ArrayList<Integer>();
+      collect(WiringPlan.ROOT, nodes, parents);
+
+      int[] fieldArray = new int[nodes.size()];
+      int[] parentArray = new int[nodes.size()];
+      boolean[] borderArray = new boolean[nodes.size()];
+      for (int i = 0; i < fieldArray.length; i++) {
+        fieldArray[i] = nodes.get(i).field;
+        parentArray[i] = parents.get(i);
+        borderArray[i] = nodes.get(i).border;
+      }
+      return new WiringPlan(fieldArray, parentArray, borderArray);
+    }
+
+    private void collect(int slot, List<Node> nodes, List<Integer> parents) {
+      for (Node child : childNodes) {
+        nodes.add(child);
+        parents.add(slot);
+        child.collect(nodes.size() - 1, nodes, parents);
       }
     }
 
@@ -481,41 +1672,67 @@ public final class AutoWire implements IComponentInitializationListener, ICompon
 
   private interface Action {
     void perform(Component component);
+
+    Field getField();
   }
 
-  private class AssignInstanceAction implements Action {
+  private static class AssignInstanceAction implements Action {
 
-    private final Field field;
+    private final FieldAccessor accessor;
+    private final ComponentFactory factory;
     private final String id;
 
-    public AssignInstanceAction(Field field, String id) {
-      this.field = field;
+    public AssignInstanceAction(FieldAccessor accessor, ComponentFactory factory, String id) {
+      this.accessor = accessor;
+      this.factory = factory;
       this.id = id;
     }
 
     @Override
     public String toString() {
-      return "Assign instance with id " + id + " to field " + field.getName();
+      return "Assign instance with id " + id + " to field " + accessor.getName();
+    }
+
+    @Override
+    public Field getField() {
+      return accessor.getField();
     }
 
     @Override
     public void perform(Component component) {
-      try {
-        Component instance = getInstance(field.getType(), component, id);
-        setValue(instance, component, field);
-      }
-      catch (NoSuchMethodException e) {
-        e.printStackTrace();
-      }
-      catch (InstantiationException e) {
-        e.printStackTrace();
-      }
-      catch (IllegalAccessException e) {
-        e.printStackTrace();
-      }
-      catch (InvocationTargetException e) {
-        e.printStackTrace();
-      }
+      Component instance = factory.newInstance(component, id);
+      accessor.set(component, instance);
+    }
+  }
+
+  private static class AssignListViewAction implements Action {
+
+    private final FieldAccessor accessor;
+    private final ComponentFactory factory;
+    private final String id;
+    private final AutoItem item;
+
+    public AssignListViewAction(FieldAccessor accessor, ComponentFactory factory, String id, AutoItem item) {
+      this.accessor = accessor;
+      this.factory = factory;
+      this.id = id;
+      this.item = item;
+    }
+
+    @Override
+    public String toString() {
+      return "Assign list view with id " + id + " and items " + item.type().getName() + " to field "
+             + accessor.getName();
+    }
+
+    @Override
+    public Field getField() {
+      return accessor.getField();
+    }
+
+    @Override
+    public void perform(Component component) {
+      accessor.set(component, new AutoListView<Object>(id, component, item.type(), item.id(), factory));
     }
   }
 }
\ No newline at end of file
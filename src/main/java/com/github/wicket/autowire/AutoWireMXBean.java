@@ -0,0 +1,69 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law
+ * or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.github.wicket.autowire;
+
+import java.util.List;
+
+/**
+ * Management interface of an {@link AutoWire} installation. Registered with
+ * the platform MBean server as
+ * <code>com.github.wicket.autowire:type=AutoWire,application=&lt;name&gt;</code>.
+ * Durations are in nanoseconds.
+ */
+public interface AutoWireMXBean {
+
+  long getClassCacheHitCount();
+
+  long getClassCacheMissCount();
+
+  long getMarkupCacheHitCount();
+
+  long getMarkupCacheMissCount();
+
+  long getMarkupCacheEvictionCount();
+
+  /**
+   * @return number of markup plans restored from a snapshot
+   */
+  long getMarkupCacheRestoreCount();
+
+  long getMarkupKeyCacheHitCount();
+
+  /**
+   * @return number of markup fragments, that were keyed because their key was
+   *         not cached
+   */
+  long getMarkupKeyCacheMissCount();
+
+  long getMarkupKeyCacheEvictionCount();
+
+  /**
+   * @return number of instantiations per power of two bucket, see
+   *         {@link #getInitializationLatencyHistogram()}
+   */
+  long[] getInstantiationLatencyHistogram();
+
+  /**
+   * @return number of initializations per power of two bucket. Bucket
+   *         <code>i</code> counts durations from <code>2^(i-1)</code> up to
+   *         <code>2^i</code> nanoseconds.
+   */
+  long[] getInitializationLatencyHistogram();
+
+  /**
+   * @return statistics of all component classes with auto-wired fields
+   */
+  List<ComponentClassStatistics> getComponentClasses();
+
+}
@@ -0,0 +1,46 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law
+ * or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.github.wicket.autowire;
+
+/**
+ * Receives timings of an {@link AutoWire} installation, e.g. to forward them to
+ * a metrics library. Methods are called on the request threads for component
+ * classes with auto-wired fields only and must not block.
+ * 
+ * @see AutoWireSettings#setMetrics(AutoWireMetrics)
+ */
+public interface AutoWireMetrics {
+
+  /**
+   * The fields and instantiation actions of a component class were looked up.
+   */
+  void classPlanBuilt(Class<?> componentClass, long nanos);
+
+  /**
+   * The markup of a component class was walked to build a markup plan.
+   */
+  void markupPlanBuilt(Class<?> componentClass, long nanos);
+
+  /**
+   * The auto-wired fields of a component were assigned.
+   */
+  void instantiated(Class<?> componentClass, long nanos);
+
+  /**
+   * The auto-wired components were added to their parents, including the
+   * markup plan lookup.
+   */
+  void initialized(Class<?> componentClass, long nanos);
+
+}
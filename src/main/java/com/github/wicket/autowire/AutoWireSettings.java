@@ -0,0 +1,399 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law
+ * or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.github.wicket.autowire;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.wicket.Application;
+
+/**
+ * Settings of an {@link AutoWire} installation. Settings must not be changed
+ * after {@link AutoWire#install(org.apache.wicket.Application, AutoWireSettings)}.
+ */
+public class AutoWireSettings {
+
+  private final List<String> includedPackages = new ArrayList<String>();
+
+  private final List<String> excludedPackages = new ArrayList<String>();
+
+  private boolean requireOptIn = false;
+
+  private int markupCacheSize = 32;
+
+  private long markupCacheExpiry = TimeUnit.DAYS.toMillis(8);
+
+  private int markupKeyCacheSize = 65536;
+
+  private long maintenanceInterval = TimeUnit.MINUTES.toMillis(1);
+
+  private boolean useGeneratedWirers = true;
+
+  private int compileThreshold = 100;
+
+  private int compilerThreads = 1;
+
+  private final List<Class<?>> warmUpClasses = new ArrayList<Class<?>>();
+
+  private final List<String> warmUpPackages = new ArrayList<String>();
+
+  private final List<MarkupVariant> warmUpVariants = new ArrayList<MarkupVariant>();
+
+  private int warmUpThreads = Runtime.getRuntime().availableProcessors();
+
+  private AutoWireMetrics metrics;
+
+  private long slowWiringThreshold = 100;
+
+  private boolean registerMBean = true;
+
+  private File snapshotFile;
+
+  // null: in development mode only
+  private Boolean profiling;
+
+  public AutoWireSettings() {
+    // wicket's own components never declare auto-wired fields
+    excludedPackages.add("org.apache.wicket.");
+  }
+
+  /**
+   * Restricts auto wiring to component classes with the given name prefix.
+   * If no package is included, all packages are.
+   */
+  public AutoWireSettings includePackage(final String prefix) {
+    includedPackages.add(prefix);
+    return this;
+  }
+
+  /**
+   * Component classes with the given name prefix are never inspected for
+   * auto-wired fields. <code>org.apache.wicket.</code> is excluded by default.
+   */
+  public AutoWireSettings excludePackage(final String prefix) {
+    excludedPackages.add(prefix);
+    return this;
+  }
+
+  public List<String> getIncludedPackages() {
+    return includedPackages;
+  }
+
+  public List<String> getExcludedPackages() {
+    return excludedPackages;
+  }
+
+  /**
+   * If enabled, only component classes annotated with {@link AutoWired} are
+   * inspected for auto-wired fields.
+   */
+  public AutoWireSettings setRequireOptIn(final boolean requireOptIn) {
+    this.requireOptIn = requireOptIn;
+    return this;
+  }
+
+  public boolean isRequireOptIn() {
+    return requireOptIn;
+  }
+
+  /**
+   * Sets the number of markup plans that are cached per component class. There
+   * is a plan for each markup variant, i.e. for each locale, style and
+   * variation.
+   */
+  public AutoWireSettings setMarkupCacheSize(final int markupCacheSize) {
+    this.markupCacheSize = markupCacheSize;
+    return this;
+  }
+
+  public int getMarkupCacheSize() {
+    return markupCacheSize;
+  }
+
+  /**
+   * Sets the time after which unused markup plans are evicted.
+   */
+  public AutoWireSettings setMarkupCacheExpiry(final long duration, final TimeUnit unit) {
+    this.markupCacheExpiry = unit.toMillis(duration);
+    return this;
+  }
+
+  public long getMarkupCacheExpiry() {
+    return markupCacheExpiry;
+  }
+
+  /**
+   * Sets the maximum number of markup fragments, whose keys are remembered to
+   * find their plans. There is a fragment for each markup variant of a
+   * component class, and for each fragment of a markup. The table starts small
+   * and grows, if keys of live markup are replaced too often. Fragments, whose
+   * key is not remembered, are keyed again each time.
+   */
+  public AutoWireSettings setMarkupKeyCacheSize(final int markupKeyCacheSize) {
+    this.markupKeyCacheSize = markupKeyCacheSize;
+    return this;
+  }
+
+  public int getMarkupKeyCacheSize() {
+    return markupKeyCacheSize;
+  }
+
+  /**
+   * Sets the interval in which expired markup plans are evicted in the
+   * background.
+   */
+  public AutoWireSettings setMaintenanceInterval(final long duration, final TimeUnit unit) {
+    this.maintenanceInterval = unit.toMillis(duration);
+    return this;
+  }
+
+  public long getMaintenanceInterval() {
+    return maintenanceInterval;
+  }
+
+  /**
+   * If enabled, fields of component classes with a {@link ComponentWirer}
+   * generated by the annotation processor are accessed and created without
+   * reflection. Enabled by default.
+   */
+  public AutoWireSettings setUseGeneratedWirers(final boolean useGeneratedWirers) {
+    this.useGeneratedWirers = useGeneratedWirers;
+    return this;
+  }
+
+  public boolean isUseGeneratedWirers() {
+    return useGeneratedWirers;
+  }
+
+  /**
+   * New component classes and markup are wired by interpreted plans, that are
+   * cheap to build but slower to run. Once a class was instantiated, or a
+   * markup was wired, the given number of times, an optimized plan is compiled
+   * in the background and replaces the interpreted one. With 0, plans are
+   * compiled right away.
+   */
+  public AutoWireSettings setCompileThreshold(final int compileThreshold) {
+    this.compileThreshold = compileThreshold;
+    return this;
+  }
+
+  public int getCompileThreshold() {
+    return compileThreshold;
+  }
+
+  /**
+   * Sets the number of threads compiling hot plans. With 0, plans are compiled
+   * by the request that makes them hot.
+   */
+  public AutoWireSettings setCompilerThreads(final int compilerThreads) {
+    this.compilerThreads = compilerThreads;
+    return this;
+  }
+
+  public int getCompilerThreads() {
+    return compilerThreads;
+  }
+
+  /**
+   * Sets a receiver of wiring timings, e.g. to forward them to a metrics
+   * library. Statistics are collected and published by the
+   * {@link AutoWireMXBean} regardless.
+   */
+  public AutoWireSettings setMetrics(final AutoWireMetrics metrics) {
+    this.metrics = metrics;
+    return this;
+  }
+
+  public AutoWireMetrics getMetrics() {
+    return metrics;
+  }
+
+  /**
+   * Instantiations and initializations taking longer than the threshold are
+   * logged as warning. Defaults to 100ms.
+   */
+  public AutoWireSettings setSlowWiringThreshold(final long duration, final TimeUnit unit) {
+    this.slowWiringThreshold = unit.toMillis(duration);
+    return this;
+  }
+
+  public long getSlowWiringThreshold() {
+    return slowWiringThreshold;
+  }
+
+  /**
+   * Whether to register the {@link AutoWireMXBean} with the platform MBean
+   * server. Enabled by default.
+   */
+  public AutoWireSettings setRegisterMBean(final boolean registerMBean) {
+    this.registerMBean = registerMBean;
+    return this;
+  }
+
+  public boolean isRegisterMBean() {
+    return registerMBean;
+  }
+
+  /**
+   * Builds the plans of the given component classes when the application is
+   * initialized, or when {@link AutoWire#warmUp()} is called.
+   */
+  public AutoWireSettings warmUp(final Class<?>... componentClasses) {
+    warmUpClasses.addAll(Arrays.asList(componentClasses));
+    return this;
+  }
+
+  /**
+   * Builds the plans of all component classes in the package and its sub
+   * packages when the application is initialized.
+   */
+  public AutoWireSettings warmUpPackage(final String packageName) {
+    warmUpPackages.add(packageName);
+    return this;
+  }
+
+  public List<Class<?>> getWarmUpClasses() {
+    return warmUpClasses;
+  }
+
+  public List<String> getWarmUpPackages() {
+    return warmUpPackages;
+  }
+
+  /**
+   * Adds a markup variant to warm up. Markup plans are always built for the
+   * default locale without style and variation.
+   */
+  public AutoWireSettings addWarmUpVariant(final Locale locale, final String style, final String variation) {
+    warmUpVariants.add(new MarkupVariant(locale, style, variation));
+    return this;
+  }
+
+  /**
+   * @return the default variant followed by the added variants
+   */
+  public List<MarkupVariant> getWarmUpVariants() {
+    List<MarkupVariant> variants = new ArrayList<MarkupVariant>();
+    variants.add(new MarkupVariant(Locale.getDefault(), null, null));
+    variants.addAll(warmUpVariants);
+    return variants;
+  }
+
+  /**
+   * Sets the number of threads building plans during warm up.
+   */
+  public AutoWireSettings setWarmUpThreads(final int warmUpThreads) {
+    this.warmUpThreads = warmUpThreads;
+    return this;
+  }
+
+  public int getWarmUpThreads() {
+    return warmUpThreads;
+  }
+
+  /**
+   * Sets a file to keep the markup plans in across restarts. Plans are loaded
+   * on install and saved when auto wiring is uninstalled, e.g. when the
+   * application is destroyed. Plans of changed classes or markup are
+   * discarded.
+   */
+  public AutoWireSettings setSnapshotFile(final File snapshotFile) {
+    this.snapshotFile = snapshotFile;
+    return this;
+  }
+
+  public File getSnapshotFile() {
+    return snapshotFile;
+  }
+
+  /**
+   * Whether to collect a {@link WiringProfile} of each request. Enabled in
+   * development mode and disabled in deployment mode by default.
+   */
+  public AutoWireSettings setProfiling(final boolean profiling) {
+    this.profiling = profiling;
+    return this;
+  }
+
+  /**
+   * @return whether requests of the application are profiled
+   */
+  public boolean isProfiling(final Application application) {
+    return profiling != null ? profiling : application.usesDevelopmentConfig();
+  }
+
+  /**
+   * @return whether the given component class may declare auto-wired fields
+   */
+  public boolean isInScope(final Class<?> componentClass) {
+    final String name = componentClass.getName();
+    boolean included = includedPackages.isEmpty();
+    for (String prefix : includedPackages) {
+      if (name.startsWith(prefix)) {
+        included = true;
+        break;
+      }
+    }
+    if (!included) {
+      return false;
+    }
+    for (String prefix : excludedPackages) {
+      if (name.startsWith(prefix)) {
+        return false;
+      }
+    }
+    return !requireOptIn || componentClass.isAnnotationPresent(AutoWired.class);
+  }
+
+  /**
+   * Locale, style and variation of a markup file.
+   */
+  public static final class MarkupVariant {
+
+    private final Locale locale;
+
+    private final String style;
+
+    private final String variation;
+
+    public MarkupVariant(final Locale locale, final String style, final String variation) {
+      this.locale = locale;
+      this.style = style;
+      this.variation = variation;
+    }
+
+    public Locale getLocale() {
+      return locale;
+    }
+
+    public String getStyle() {
+      return style;
+    }
+
+    public String getVariation() {
+      return variation;
+    }
+
+    @Override
+    public String toString() {
+      return locale + "_" + style + "_" + variation;
+    }
+
+  }
+
+}
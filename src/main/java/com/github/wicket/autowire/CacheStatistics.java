@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law
+ * or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.github.wicket.autowire;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hit, miss and eviction counts of the markup plan caches of an
+ * {@link AutoWire} installation or of a single component class. Plans
+ * restored from a snapshot are counted separately, they are no misses.
+ */
+public class CacheStatistics {
+
+  // the statistics of the installation, if these are the statistics of a component class
+  private final CacheStatistics parent;
+
+  private final LongAdder hits = new LongAdder();
+
+  private final LongAdder misses = new LongAdder();
+
+  private final LongAdder evictions = new LongAdder();
+
+  private final LongAdder restores = new LongAdder();
+
+  public CacheStatistics() {
+    this(null);
+  }
+
+  CacheStatistics(final CacheStatistics parent) {
+    this.parent = parent;
+  }
+
+  void recordHit() {
+    hits.increment();
+    if (parent != null) {
+      parent.recordHit();
+    }
+  }
+
+  void recordMiss() {
+    misses.increment();
+    if (parent != null) {
+      parent.recordMiss();
+    }
+  }
+
+  void recordEvictions(final int count) {
+    evictions.add(count);
+    if (parent != null) {
+      parent.recordEvictions(count);
+    }
+  }
+
+  void recordRestore() {
+    restores.increment();
+    if (parent != null) {
+      parent.recordRestore();
+    }
+  }
+
+  public long getHitCount() {
+    return hits.sum();
+  }
+
+  public long getMissCount() {
+    return misses.sum();
+  }
+
+  public long getEvictionCount() {
+    return evictions.sum();
+  }
+
+  /**
+   * @return number of plans restored from a snapshot
+   */
+  public long getRestoreCount() {
+    return restores.sum();
+  }
+
+  @Override
+  public String toString() {
+    return "CacheStatistics{hits=" + getHitCount() + ", misses=" + getMissCount() + ", evictions="
+           + getEvictionCount() + ", restores=" + getRestoreCount() + '}';
+  }
+
+}
@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law
+ * or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.github.wicket.autowire;
+
+/**
+ * Snapshot of the wiring statistics of a component class. Durations are in
+ * nanoseconds.
+ */
+public final class ComponentClassStatistics {
+
+  private final String name;
+  private final long classPlanBuildTime;
+  private final long instantiationCount;
+  private final long instantiationTime;
+  private final long initializationCount;
+  private final long initializationTime;
+  private final long markupPlanCount;
+  private final long markupPlanBuildTime;
+  private final long markupCacheHitCount;
+  private final long markupCacheMissCount;
+  private final long markupCacheEvictionCount;
+  private final long markupCacheRestoreCount;
+  private final boolean compiled;
+
+  ComponentClassStatistics(final String name, final long classPlanBuildTime, final long instantiationCount,
+                           final long instantiationTime, final long initializationCount,
+                           final long initializationTime, final long markupPlanCount,
+                           final long markupPlanBuildTime, final CacheStatistics markupCache,
+                           final boolean compiled) {
+    this.name = name;
+    this.classPlanBuildTime = classPlanBuildTime;
+    this.instantiationCount = instantiationCount;
+    this.instantiationTime = instantiationTime;
+    this.initializationCount = initializationCount;
+    this.initializationTime = initializationTime;
+    this.markupPlanCount = markupPlanCount;
+    this.markupPlanBuildTime = markupPlanBuildTime;
+    this.markupCacheHitCount = markupCache.getHitCount();
+    this.markupCacheMissCount = markupCache.getMissCount();
+    this.markupCacheEvictionCount = markupCache.getEvictionCount();
+    this.markupCacheRestoreCount = markupCache.getRestoreCount();
+    this.compiled = compiled;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public long getClassPlanBuildTime() {
+    return classPlanBuildTime;
+  }
+
+  public long getInstantiationCount() {
+    return instantiationCount;
+  }
+
+  public long getInstantiationTime() {
+    return instantiationTime;
+  }
+
+  public long getInitializationCount() {
+    return initializationCount;
+  }
+
+  public long getInitializationTime() {
+    return initializationTime;
+  }
+
+  /**
+   * @return number of currently cached markup plans
+   */
+  public long getMarkupPlanCount() {
+    return markupPlanCount;
+  }
+
+  public long getMarkupPlanBuildTime() {
+    return markupPlanBuildTime;
+  }
+
+  public long getMarkupCacheHitCount() {
+    return markupCacheHitCount;
+  }
+
+  public long getMarkupCacheMissCount() {
+    return markupCacheMissCount;
+  }
+
+  public long getMarkupCacheEvictionCount() {
+    return markupCacheEvictionCount;
+  }
+
+  public long getMarkupCacheRestoreCount() {
+    return markupCacheRestoreCount;
+  }
+
+  /**
+   * @return false while the class is wired by its interpreted plan
+   */
+  public boolean isCompiled() {
+    return compiled;
+  }
+
+  @Override
+  public String toString() {
+    return "ComponentClassStatistics{" + name + ", instantiations=" + instantiationCount + ", initializations="
+           + initializationCount + ", markupPlans=" + markupPlanCount + '}';
+  }
+
+}
@@ -0,0 +1,186 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law
+ * or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.github.wicket.autowire;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
+
+import org.apache.wicket.Component;
+
+/**
+ * Creates instances of an injected component type. The constructor is looked
+ * up once, when the instantiation actions of a component class are built.
+ * Fields with a generated {@link ComponentWirer} are created by the wirer.
+ * Interpreted factories call the constructor through core reflection.
+ */
+final class ComponentFactory {
+
+  private static final MethodType STATIC_TYPE = MethodType.methodType(Component.class, String.class);
+
+  private static final MethodType INNER_TYPE = MethodType.methodType(Component.class, Component.class, String.class);
+
+  private final Class<?> type;
+
+  private final MethodHandle constructor;
+
+  // interpreted factories only
+  private final Constructor<?> reflectiveConstructor;
+
+  // non-static inner classes get the enclosing component as first argument
+  private final boolean inner;
+
+  private ComponentFactory(Class<?> type, MethodHandle constructor, boolean inner) {
+    this.type = type;
+    this.constructor = constructor;
+    this.reflectiveConstructor = null;
+    this.inner = inner;
+  }
+
+  private ComponentFactory(Constructor<?> constructor) {
+    this.type = constructor.getDeclaringClass();
+    this.constructor = null;
+    this.reflectiveConstructor = constructor;
+    this.inner = constructor.getParameterTypes().length == 2;
+  }
+
+  /**
+   * @param field
+   *          the auto-wired field
+   * @param enclosingClass
+   *          class of the component, that declares the field
+   * @param id
+   *          wicket id, used for error messages only
+   * @param generated
+   *          whether to use the generated wirer of the field, if available
+   */
+  public static ComponentFactory of(final Field field, final Class<?> enclosingClass, final String id,
+                                    final boolean generated) {
+    MethodHandle factory = generated ? Wirers.factory(field) : null;
+    if (factory != null) {
+      return new ComponentFactory(field.getType(), factory, true);
+    }
+    return of(field.getType(), enclosingClass, id);
+  }
+
+  /**
+   * @param componentClass
+   *          type of the component to create
+   * @param enclosingClass
+   *          class of the component, that declares the field. Instances of
+   *          this class are passed as enclosing instance to inner classes.
+   * @param id
+   *          wicket id, used for error messages only
+   */
+  public static ComponentFactory of(final Class<?> componentClass, final Class<?> enclosingClass, final String id) {
+    final Constructor<?> constructor = getConstructor(componentClass, enclosingClass, id);
+    try {
+      MethodHandle handle = unreflect(constructor);
+      boolean inner = constructor.getParameterTypes().length == 2;
+      return new ComponentFactory(componentClass, handle.asType(inner ? INNER_TYPE : STATIC_TYPE), inner);
+    }
+    catch (IllegalAccessException e) {
+      throw new RuntimeException("Unable to access constructor of " + componentClass.getName(), e);
+    }
+  }
+
+  /**
+   * @return factory using core reflection, see
+   *         {@link #of(Class, Class, String)}
+   */
+  public static ComponentFactory interpreted(final Class<?> componentClass, final Class<?> enclosingClass,
+                                             final String id) {
+    final Constructor<?> constructor = getConstructor(componentClass, enclosingClass, id);
+    constructor.setAccessible(true);
+    return new ComponentFactory(constructor);
+  }
+
+  private static Constructor<?> getConstructor(final Class<?> componentClass, final Class<?> enclosingClass,
+                                               final String id) {
+    if (!Component.class.isAssignableFrom(componentClass)) {
+      throw new RuntimeException("Unable to initialize " + componentClass.getName() + " with id " + id
+                                 + ". It is not a component.");
+    }
+    if (componentClass.isInterface() || Modifier.isAbstract(componentClass.getModifiers())) {
+      throw new RuntimeException("Unable to initialize abstract class " + componentClass.getName() + " with id " + id
+                                 + ". Use @AutoComponent(inject=false) and create the component manually.");
+    }
+    try {
+      if (componentClass.getEnclosingClass() == null || Modifier.isStatic(componentClass.getModifiers())) {
+        // -- Static inner class or normal class
+        return componentClass.getDeclaredConstructor(String.class);
+      }
+      else {
+        if (componentClass.getEnclosingClass().isAssignableFrom(enclosingClass)) {
+          return componentClass.getDeclaredConstructor(componentClass.getEnclosingClass(), String.class);
+        }
+        throw new RuntimeException("Unable to initialize inner class " + componentClass.getSimpleName() + " with id "
+                                   + id + ". Enclosing class is not in the component hierarchy.");
+      }
+    }
+    catch (NoSuchMethodException e) {
+      throw new RuntimeException("Unable to initialize " + componentClass.getName() + " with id " + id
+                                 + ". There is no constructor with the wicket id as only parameter."
+                                 + " Use @AutoComponent(inject=false) and create the component manually.", e);
+    }
+  }
+
+  private static MethodHandle unreflect(Constructor<?> constructor) throws IllegalAccessException {
+    constructor.setAccessible(true);
+    return MethodHandles.lookup().unreflectConstructor(constructor);
+  }
+
+  public Component newInstance(final Component enclosing, final String id) {
+    try {
+      if (reflectiveConstructor != null) {
+        return (Component) (inner ? reflectiveConstructor.newInstance(enclosing, id)
+                                  : reflectiveConstructor.newInstance(id));
+      }
+      if (inner) {
+        return (Component) constructor.invokeExact(enclosing, id);
+      }
+      else {
+        return (Component) constructor.invokeExact(id);
+      }
+    }
+    catch (RuntimeException e) {
+      throw e;
+    }
+    catch (Error e) {
+      throw e;
+    }
+    catch (InvocationTargetException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      if (e.getCause() instanceof Error) {
+        throw (Error) e.getCause();
+      }
+      throw new RuntimeException("Unable to initialize " + type.getName() + " with id " + id, e.getCause());
+    }
+    catch (Throwable e) {
+      throw new RuntimeException("Unable to initialize " + type.getName() + " with id " + id, e);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return type.getName();
+  }
+
+}
@@ -0,0 +1,58 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law
+ * or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.github.wicket.autowire;
+
+import org.apache.wicket.Component;
+
+/**
+ * Reflection free access to the auto-wired fields declared by a component
+ * class. Implementations are generated by
+ * {@link com.github.wicket.autowire.processor.AutoWireProcessor} as
+ * <code>&lt;binary class name&gt;_AutoWirer</code> in the package of the
+ * component class. Fields are addressed by their index in
+ * {@link #getFieldNames()}.
+ * 
+ * @param <T>
+ *          the component class
+ */
+public interface ComponentWirer<T extends Component> {
+
+  /**
+   * Suffix of the generated wirer class names.
+   */
+  String SUFFIX = "_AutoWirer";
+
+  /**
+   * @return names of the auto-wired fields declared by the component class
+   */
+  String[] getFieldNames();
+
+  /**
+   * @return the value of the field
+   */
+  Component get(T component, int field);
+
+  /**
+   * Assigns the field.
+   */
+  void set(T component, int field, Component value);
+
+  /**
+   * Creates a new instance of the field's type. Instances of inner classes are
+   * created with the component as enclosing instance. Only supported for
+   * injected fields.
+   */
+  Component create(T component, int field, String id);
+
+}
@@ -0,0 +1,91 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law
+ * or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.github.wicket.autowire;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Cache that computes missing values at most once per key. Values of
+ * different keys are computed in parallel, threads asking for a key that is
+ * being computed wait for that computation. No monitor is held while
+ * computing.
+ */
+abstract class ComputingCache<K, V> {
+
+  private final ConcurrentMap<K, FutureTask<V>> computations = new ConcurrentHashMap<K, FutureTask<V>>();
+
+  /**
+   * @return the cached value or null
+   */
+  public abstract V get(final K key);
+
+  protected abstract void put(final K key, final V value);
+
+  /**
+   * @return the cached value, computed by the given computation if missing
+   */
+  public V get(final K key, final Callable<? extends V> computation) {
+    V value = get(key);
+    if (value != null) {
+      return value;
+    }
+
+    FutureTask<V> task = new FutureTask<V>(new Callable<V>() {
+
+      @Override
+      public V call() throws Exception {
+        // the value may have been stored since the lookup above
+        V value = get(key);
+        if (value == null) {
+          value = computation.call();
+          put(key, value);
+        }
+        return value;
+      }
+
+    });
+    FutureTask<V> running = computations.putIfAbsent(key, task);
+    if (running == null) {
+      running = task;
+      try {
+        task.run();
+      }
+      finally {
+        computations.remove(key, task);
+      }
+    }
+
+    try {
+      return running.get();
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Interrupted while waiting for " + key, e);
+    }
+    catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      if (e.getCause() instanceof Error) {
+        throw (Error) e.getCause();
+      }
+      throw new RuntimeException(e.getCause());
+    }
+  }
+
+}
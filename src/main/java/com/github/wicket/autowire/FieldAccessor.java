@@ -0,0 +1,226 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law
+ * or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.github.wicket.autowire;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.wicket.Component;
+
+/**
+ * Read and write access to an auto-wired field. All reflective lookups and
+ * access checks are done once on construction, reads and writes go through
+ * method handles afterwards. Fields with a generated {@link ComponentWirer} are
+ * accessed through the wirer instead of reflection.
+ * <p>
+ * Interpreted accessors skip the method handles and use core reflection. They
+ * are cheaper to create and used until a component class is hot.
+ */
+final class FieldAccessor {
+
+  private static final MethodType GETTER_TYPE = MethodType.methodType(Component.class, Component.class);
+
+  private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Component.class, Component.class);
+
+  private final Field field;
+
+  private final String id;
+
+  // unassigned lazy fields are wired as placeholder
+  private final boolean lazy;
+
+  private final MethodHandle getter;
+
+  // the field itself and all fields with the same name in super classes
+  private final MethodHandle[] setters;
+
+  // interpreted accessors only, the fields written by the setters
+  private final Field[] fields;
+
+  // whether the field is read through a generated wirer
+  private final boolean generated;
+
+  private FieldAccessor(Field field, MethodHandle getter, MethodHandle[] setters, Field[] fields,
+                        boolean generated) {
+    this.field = field;
+    AutoComponent annotation = field.getAnnotation(AutoComponent.class);
+    this.id = idOf(field);
+    this.lazy = annotation != null && annotation.inject() && annotation.lazy()
+                && !field.isAnnotationPresent(AutoItem.class);
+    this.getter = getter;
+    this.setters = setters;
+    this.fields = fields;
+    this.generated = generated;
+  }
+
+  /**
+   * @param generated
+   *          whether to use generated wirers, if available
+   */
+  public static FieldAccessor of(Field field, boolean generated) {
+    if (!Component.class.isAssignableFrom(field.getType())) {
+      throw new RuntimeException("Field " + field + " is annotated with @AutoComponent, but is not a component");
+    }
+    MethodHandles.Lookup lookup = MethodHandles.lookup();
+    try {
+      MethodHandle getter = generated ? Wirers.getter(field) : null;
+      final boolean wirer = getter != null;
+      if (getter == null) {
+        getter = lookup.unreflectGetter(accessible(field)).asType(GETTER_TYPE);
+      }
+
+      List<Field> fields = getFields(field);
+      MethodHandle[] setters = new MethodHandle[fields.size()];
+      for (int i = 0; i < setters.length; i++) {
+        MethodHandle setter = generated ? Wirers.setter(fields.get(i)) : null;
+        setters[i] = setter != null ? setter : lookup.unreflectSetter(accessible(fields.get(i))).asType(SETTER_TYPE);
+      }
+      return new FieldAccessor(field, getter, setters, null, wirer);
+    }
+    catch (IllegalAccessException e) {
+      throw new RuntimeException("Unable to access field " + field, e);
+    }
+  }
+
+  /**
+   * @return accessor using core reflection
+   */
+  public static FieldAccessor interpreted(Field field) {
+    if (!Component.class.isAssignableFrom(field.getType())) {
+      throw new RuntimeException("Field " + field + " is annotated with @AutoComponent, but is not a component");
+    }
+    List<Field> fields = getFields(field);
+    for (Field f : fields) {
+      accessible(f);
+    }
+    return new FieldAccessor(accessible(field), null, null, fields.toArray(new Field[fields.size()]), false);
+  }
+
+  /**
+   * @return the wicket id declared by the annotation, or the field name
+   */
+  static String idOf(Field field) {
+    AutoComponent annotation = field.getAnnotation(AutoComponent.class);
+    return annotation == null || annotation.id().isEmpty() ? field.getName() : annotation.id();
+  }
+
+  // set value on duplicated field of parent classes too!
+  private static List<Field> getFields(Field field) {
+    List<Field> fields = new ArrayList<Field>();
+    Class<?> clazz = field.getDeclaringClass();
+    while (Component.class.isAssignableFrom(clazz)) {
+      for (Field f : clazz.getDeclaredFields()) {
+        if (f.getName().equals(field.getName()) && !Modifier.isStatic(f.getModifiers())
+            && f.getType().isAssignableFrom(field.getType())) {
+          fields.add(f);
+        }
+      }
+      clazz = clazz.getSuperclass();
+    }
+    return fields;
+  }
+
+  private static Field accessible(Field field) {
+    field.setAccessible(true);
+    return field;
+  }
+
+  public Field getField() {
+    return field;
+  }
+
+  /**
+   * @return true if the field is accessed through a generated wirer
+   */
+  public boolean isGenerated() {
+    return generated;
+  }
+
+  public String getName() {
+    return field.getName();
+  }
+
+  /**
+   * @return the wicket id declared by the annotation, or the field name
+   */
+  public String getId() {
+    return id;
+  }
+
+  public boolean isLazy() {
+    return lazy;
+  }
+
+  /**
+   * @return the component to wire: the value of the field or, if a lazy
+   *         field is not assigned yet, a placeholder
+   */
+  public Component resolve(Component component) {
+    final Component value = get(component);
+    if (value == null && lazy) {
+      return new LazyPlaceholder(id, component, field);
+    }
+    return value;
+  }
+
+  public Component get(Component component) {
+    try {
+      if (getter == null) {
+        return (Component) field.get(component);
+      }
+      return (Component) getter.invokeExact(component);
+    }
+    catch (Throwable e) {
+      throw rethrow(e);
+    }
+  }
+
+  public void set(Component component, Component value) {
+    try {
+      if (setters == null) {
+        for (Field f : fields) {
+          f.set(component, value);
+        }
+        return;
+      }
+      for (MethodHandle setter : setters) {
+        setter.invokeExact(component, value);
+      }
+    }
+    catch (Throwable e) {
+      throw rethrow(e);
+    }
+  }
+
+  private static RuntimeException rethrow(Throwable e) {
+    if (e instanceof RuntimeException) {
+      return (RuntimeException) e;
+    }
+    if (e instanceof Error) {
+      throw (Error) e;
+    }
+    return new RuntimeException(e);
+  }
+
+  @Override
+  public String toString() {
+    return field.getName();
+  }
+
+}
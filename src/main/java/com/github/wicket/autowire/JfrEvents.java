@@ -0,0 +1,205 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law
+ * or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.github.wicket.autowire;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight Recorder event types. Only loaded by {@link WiringEvents} if the
+ * runtime supports Flight Recorder. Times are measured by auto wiring, so the
+ * events are committed afterwards and carry the time as a field. Events are
+ * only created if a recording enables their type, e.g.
+ * <code>jcmd &lt;pid&gt; JFR.start settings=profile</code>.
+ */
+final class JfrEvents {
+
+  private JfrEvents() {
+  }
+
+  static void classPlanBuilt(final Class<?> componentClass, final int fields, final long nanos) {
+    final ClassPlanEvent event = new ClassPlanEvent();
+    if (event.isEnabled()) {
+      event.componentClass = componentClass;
+      event.fields = fields;
+      event.buildTime = nanos;
+      event.commit();
+    }
+  }
+
+  static void markupPlanBuilt(final Class<?> componentClass, final MarkupKey key, final int children,
+                              final long nanos) {
+    final MarkupPlanEvent event = new MarkupPlanEvent();
+    if (event.isEnabled()) {
+      event.componentClass = componentClass;
+      event.markup = key.getResource();
+      event.fingerprint = key.getFingerprint();
+      event.children = children;
+      event.buildTime = nanos;
+      event.commit();
+    }
+  }
+
+  static void instantiated(final Class<?> componentClass, final int children, final long nanos) {
+    final InstantiationEvent event = new InstantiationEvent();
+    if (event.isEnabled()) {
+      event.componentClass = componentClass;
+      event.children = children;
+      event.wiringTime = nanos;
+      event.commit();
+    }
+  }
+
+  static void initialized(final Class<?> componentClass, final MarkupKey key, final int children,
+                          final long nanos) {
+    final InitializationEvent event = new InitializationEvent();
+    if (event.isEnabled()) {
+      event.componentClass = componentClass;
+      if (key != null) {
+        event.markup = key.getResource();
+        event.fingerprint = key.getFingerprint();
+      }
+      event.children = children;
+      event.wiringTime = nanos;
+      event.commit();
+    }
+  }
+
+  static void evicted(final Object key, final String cause) {
+    final EvictionEvent event = new EvictionEvent();
+    if (event.isEnabled()) {
+      if (key instanceof MarkupKey) {
+        event.markup = ((MarkupKey) key).getResource();
+        event.fingerprint = ((MarkupKey) key).getFingerprint();
+      }
+      else {
+        event.markup = String.valueOf(key);
+      }
+      event.cause = cause;
+      event.commit();
+    }
+  }
+
+  @Name("com.github.wicket.autowire.ClassPlan")
+  @Label("Auto Wiring Class Plan")
+  @Description("The auto-wired fields of a component class were looked up")
+  @Category({ "Wicket", "Auto Wiring" })
+  @StackTrace(false)
+  static final class ClassPlanEvent extends Event {
+
+    @Label("Component Class")
+    Class<?> componentClass;
+
+    @Label("Fields")
+    int fields;
+
+    @Label("Build Time")
+    @Timespan
+    long buildTime;
+
+  }
+
+  @Name("com.github.wicket.autowire.MarkupPlan")
+  @Label("Auto Wiring Markup Plan")
+  @Description("The markup of a component class was walked to build a plan")
+  @Category({ "Wicket", "Auto Wiring" })
+  @StackTrace(false)
+  static final class MarkupPlanEvent extends Event {
+
+    @Label("Component Class")
+    Class<?> componentClass;
+
+    @Label("Markup")
+    String markup;
+
+    @Label("Markup Fingerprint")
+    long fingerprint;
+
+    @Label("Wired Children")
+    int children;
+
+    @Label("Build Time")
+    @Timespan
+    long buildTime;
+
+  }
+
+  @Name("com.github.wicket.autowire.Instantiation")
+  @Label("Auto Wiring Instantiation")
+  @Description("The auto-wired fields of a component were assigned")
+  @Category({ "Wicket", "Auto Wiring" })
+  @StackTrace(false)
+  static final class InstantiationEvent extends Event {
+
+    @Label("Component Class")
+    Class<?> componentClass;
+
+    @Label("Created Children")
+    int children;
+
+    @Label("Wiring Time")
+    @Timespan
+    long wiringTime;
+
+  }
+
+  @Name("com.github.wicket.autowire.Initialization")
+  @Label("Auto Wiring Initialization")
+  @Description("The auto-wired components of a component were added to their parents")
+  @Category({ "Wicket", "Auto Wiring" })
+  @StackTrace(false)
+  static final class InitializationEvent extends Event {
+
+    @Label("Component Class")
+    Class<?> componentClass;
+
+    @Label("Markup")
+    String markup;
+
+    @Label("Markup Fingerprint")
+    long fingerprint;
+
+    @Label("Wired Children")
+    int children;
+
+    @Label("Wiring Time")
+    @Timespan
+    long wiringTime;
+
+  }
+
+  @Name("com.github.wicket.autowire.Eviction")
+  @Label("Auto Wiring Plan Eviction")
+  @Description("A markup plan was evicted from the cache")
+  @Category({ "Wicket", "Auto Wiring" })
+  @StackTrace(false)
+  static final class EvictionEvent extends Event {
+
+    @Label("Markup")
+    String markup;
+
+    @Label("Markup Fingerprint")
+    long fingerprint;
+
+    @Label("Cause")
+    String cause;
+
+  }
+
+}
@@ -0,0 +1,54 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law
+ * or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.github.wicket.autowire;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histogram with power of two buckets. Bucket <code>i</code> counts
+ * durations from <code>2^(i-1)</code> up to <code>2^i</code> nanoseconds,
+ * bucket 0 durations of zero. Recording neither allocates nor contends.
+ */
+final class LatencyHistogram {
+
+  private final LongAdder[] buckets = new LongAdder[64];
+
+  LatencyHistogram() {
+    for (int i = 0; i < buckets.length; i++) {
+      buckets[i] = new LongAdder();
+    }
+  }
+
+  public void record(final long nanos) {
+    buckets[nanos <= 0 ? 0 : 64 - Long.numberOfLeadingZeros(nanos)].increment();
+  }
+
+  /**
+   * @return counts per bucket, up to the last non-empty bucket
+   */
+  public long[] snapshot() {
+    long[] counts = new long[buckets.length];
+    int length = 0;
+    for (int i = 0; i < buckets.length; i++) {
+      counts[i] = buckets[i].sum();
+      if (counts[i] != 0) {
+        length = i + 1;
+      }
+    }
+    long[] result = new long[length];
+    System.arraycopy(counts, 0, result, 0, length);
+    return result;
+  }
+
+}
@@ -0,0 +1,79 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law
+ * or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.github.wicket.autowire;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.wicket.Component;
+import org.apache.wicket.MarkupContainer;
+import org.apache.wicket.markup.html.WebMarkupContainer;
+
+/**
+ * Takes the place of a lazy component, until that is rendered for the first
+ * time. Components of the markup nested in the lazy component are added to
+ * the placeholder and moved to the component, when it is created.
+ */
+final class LazyPlaceholder extends WebMarkupContainer {
+
+  private static final long serialVersionUID = 1L;
+
+  // the component declaring the lazy field
+  private final Component owner;
+
+  // fields are not serializable
+  private final Class<?> declaringClass;
+
+  private final String fieldName;
+
+  LazyPlaceholder(final String id, final Component owner, final Field field) {
+    super(id);
+    this.owner = owner;
+    this.declaringClass = field.getDeclaringClass();
+    this.fieldName = field.getName();
+  }
+
+  @Override
+  protected void onBeforeRender() {
+    final AutoWire autoWire = AutoWire.get(getApplication());
+    if (autoWire != null && getParent() != null) {
+      final Field field;
+      try {
+        field = declaringClass.getDeclaredField(fieldName);
+      }
+      catch (NoSuchFieldException e) {
+        throw new IllegalStateException("Lazy field " + fieldName + " of " + declaringClass.getName() + " is gone", e);
+      }
+      final Component component = autoWire.getValue(owner.getClass()).realize(owner, field);
+
+      if (component instanceof MarkupContainer) {
+        final List<Component> children = new ArrayList<Component>();
+        for (Iterator<Component> iterator = iterator(); iterator.hasNext();) {
+          children.add(iterator.next());
+        }
+        removeAll();
+        for (Component child : children) {
+          ((MarkupContainer) component).add(child);
+        }
+      }
+      replaceWith(component);
+      // the parent prepared a copy of its children, that does not contain the component
+      component.beforeRender();
+    }
+    super.onBeforeRender();
+  }
+
+}
@@ -0,0 +1,267 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law
+ * or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.github.wicket.autowire;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.apache.wicket.markup.IMarkupFragment;
+import org.apache.wicket.markup.MarkupElement;
+import org.apache.wicket.markup.MarkupResourceStream;
+
+/**
+ * Identifies a markup fragment in the markup plan cache: the markup resource
+ * it was loaded from and a structural hash over its elements.
+ * <p>
+ * Keys are computed once per loaded markup. Markup elements are immutable and
+ * shared by all fragments created from the same markup, so the first element
+ * of a fragment and its markup resource stream are used to find the key again
+ * without touching the markup. Merged markup reuses the elements of its base
+ * markup, only the resource stream tells its variants apart.
+ */
+final class MarkupKey {
+
+  private final String resource;
+  private final long fingerprint;
+  private final int size;
+  private final int hash;
+
+  MarkupKey(String resource, long fingerprint, int size) {
+    this.resource = resource;
+    this.fingerprint = fingerprint;
+    this.size = size;
+    this.hash = 31 * (31 * resource.hashCode() + (int) (fingerprint ^ (fingerprint >>> 32))) + size;
+  }
+
+  public String getResource() {
+    return resource;
+  }
+
+  public long getFingerprint() {
+    return fingerprint;
+  }
+
+  public int getSize() {
+    return size;
+  }
+
+  @Override
+  public int hashCode() {
+    return hash;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (!(obj instanceof MarkupKey)) {
+      return false;
+    }
+    MarkupKey other = (MarkupKey) obj;
+    return hash == other.hash && fingerprint == other.fingerprint && size == other.size
+           && resource.equals(other.resource);
+  }
+
+  @Override
+  public String toString() {
+    return "MarkupKey{" + resource + ", fingerprint=" + Long.toHexString(fingerprint) + ", size=" + size + '}';
+  }
+
+  /**
+   * Builds the key of a markup fragment. This renders every element of the
+   * fragment once, prefer {@link Cache#get(IMarkupFragment)}.
+   */
+  static MarkupKey of(IMarkupFragment markup) {
+    String resource = resource(markup.getMarkupResourceStream());
+
+    // 64 bit FNV-1a over the rendered elements
+    long fingerprint = 0xcbf29ce484222325L;
+    for (int i = 0; i < markup.size(); i++) {
+      String element = markup.get(i).toString();
+      for (int j = 0; j < element.length(); j++) {
+        fingerprint ^= element.charAt(j);
+        fingerprint *= 0x100000001b3L;
+      }
+    }
+    return new MarkupKey(resource, fingerprint, markup.size());
+  }
+
+  // markup class, locale, style and variation of the resource the markup was loaded from
+  static String resource(MarkupResourceStream stream) {
+    if (stream == null) {
+      return "";
+    }
+    // markup that was not loaded for a container, e.g. Markup.of(String), has no markup class
+    Class<?> markupClass = stream.getContainerInfo() == null ? null : stream.getMarkupClass();
+    return (markupClass == null ? "" : markupClass.getName()) + "_" + stream.getLocale() + "_" + stream.getStyle()
+           + "_" + stream.getVariation();
+  }
+
+  /**
+   * Remembers the keys of recently seen fragments by their first markup
+   * element and resource stream. The cache is a table with two entries per
+   * slot. It doubles its size, up to the given maximum, if the keys of live
+   * markup replaced exceed a quarter of its slots. Elements and streams are
+   * referenced weakly, entries of markup, that was reloaded or dropped by
+   * Wicket, are reused. Lookups do not allocate.
+   */
+  static class Cache {
+
+    // initial number of entries, a power of two
+    private static final int INITIAL_SIZE = 2048;
+
+    private final int maximumSize;
+
+    private final CacheStatistics statistics;
+
+    // two entries per slot, the recently added one first
+    private volatile AtomicReferenceArray<Entry> entries;
+
+    // keys of live markup replaced since the table has grown
+    private final AtomicInteger replaced = new AtomicInteger();
+
+    Cache() {
+      this(INITIAL_SIZE, new CacheStatistics());
+    }
+
+    /**
+     * @param maximumSize
+     *          maximum number of keys, rounded up to a power of two
+     */
+    Cache(int maximumSize, CacheStatistics statistics) {
+      this.maximumSize = Integer.highestOneBit(Math.min(Math.max(maximumSize, 2), 1 << 30) * 2 - 1);
+      this.statistics = statistics;
+      this.entries = new AtomicReferenceArray<Entry>(Math.min(INITIAL_SIZE, this.maximumSize));
+    }
+
+    public MarkupKey get(IMarkupFragment markup) {
+      MarkupElement first = markup.size() == 0 ? null : markup.get(0);
+      if (first == null) {
+        return of(markup);
+      }
+      // raw markup compares its text, elements of different files must not be mixed up
+      MarkupResourceStream stream = markup.getMarkupResourceStream();
+      int hash = System.identityHashCode(first) * 31 + System.identityHashCode(stream);
+      final AtomicReferenceArray<Entry> entries = this.entries;
+      int index = index(hash, entries);
+      Entry recent = entries.get(index);
+      // fragments of a markup starting with the same element only differ by their size
+      if (recent != null && recent.matches(first, stream, markup.size())) {
+        statistics.recordHit();
+        return recent.key;
+      }
+      Entry older = entries.get(index + 1);
+      if (older != null && older.matches(first, stream, markup.size())) {
+        statistics.recordHit();
+        return older.key;
+      }
+
+      // races only cost another computation of a key
+      statistics.recordMiss();
+      MarkupKey key = of(markup);
+      if (recent != null && recent.get() != null) {
+        if (older != null && older.get() != null) {
+          statistics.recordEvictions(1);
+          if (replaced.incrementAndGet() > entries.length() / 8) {
+            grow(entries);
+          }
+        }
+        entries.set(index + 1, recent);
+      }
+      entries.set(index, new Entry(first, stream, key, hash));
+      return key;
+    }
+
+    /**
+     * @return the number of entries of the table
+     */
+    int capacity() {
+      return entries.length();
+    }
+
+    // index of the first entry of the slot
+    private static int index(int hash, AtomicReferenceArray<Entry> entries) {
+      return ((hash ^ (hash >>> 16)) & (entries.length() / 2 - 1)) << 1;
+    }
+
+    // replaces the full table with one of twice its size, keeps live entries
+    private synchronized void grow(AtomicReferenceArray<Entry> full) {
+      if (entries != full || full.length() >= maximumSize) {
+        return;
+      }
+      AtomicReferenceArray<Entry> larger = new AtomicReferenceArray<Entry>(full.length() * 2);
+      for (int i = 0; i < full.length(); i++) {
+        Entry entry = full.get(i);
+        if (entry != null && entry.get() != null) {
+          int index = index(entry.hash, larger);
+          if (larger.get(index) == null) {
+            larger.set(index, entry);
+          }
+          else if (larger.get(index + 1) == null) {
+            larger.set(index + 1, entry);
+          }
+        }
+      }
+      entries = larger;
+      replaced.set(0);
+    }
+
+    /**
+     * Forgets the keys of markup loaded from the given resource.
+     */
+    public void remove(String resource) {
+      final AtomicReferenceArray<Entry> entries = this.entries;
+      for (int i = 0; i < entries.length(); i++) {
+        Entry entry = entries.get(i);
+        if (entry != null && entry.key.resource.equals(resource)) {
+          entries.compareAndSet(i, entry, null);
+        }
+      }
+    }
+
+    public void clear() {
+      final AtomicReferenceArray<Entry> entries = this.entries;
+      for (int i = 0; i < entries.length(); i++) {
+        entries.set(i, null);
+      }
+    }
+
+  }
+
+  private static final class Entry extends WeakReference<MarkupElement> {
+
+    // the stream references its base markup, so it is not kept alive either
+    private final WeakReference<MarkupResourceStream> stream;
+
+    private final MarkupKey key;
+
+    // to move the entry, when the table grows
+    private final int hash;
+
+    Entry(MarkupElement element, MarkupResourceStream stream, MarkupKey key, int hash) {
+      super(element);
+      this.stream = new WeakReference<MarkupResourceStream>(stream);
+      this.key = key;
+      this.hash = hash;
+    }
+
+    boolean matches(MarkupElement element, MarkupResourceStream stream, int size) {
+      return get() == element && this.stream.get() == stream && key.size == size;
+    }
+
+  }
+
+}
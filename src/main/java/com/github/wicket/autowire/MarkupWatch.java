@@ -0,0 +1,148 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law
+ * or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.github.wicket.autowire;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.apache.wicket.Application;
+import org.apache.wicket.markup.IMarkupFragment;
+import org.apache.wicket.markup.MarkupResourceStream;
+import org.apache.wicket.util.listener.IChangeListener;
+import org.apache.wicket.util.time.Time;
+import org.apache.wicket.util.watch.IModifiable;
+import org.apache.wicket.util.watch.IModificationWatcher;
+
+/**
+ * Connects markup plans to Wicket's markup loading. If resources are polled
+ * for changes, usually in development mode, plans are dropped as soon as the
+ * watcher reports a modified markup file or base markup file. Only the plans
+ * built from that markup are affected.
+ * <p>
+ * If resources are not polled and the application runs in deployment mode,
+ * markup never changes. Plans are frozen: they do not expire, and wired
+ * classes remember the last markup they have seen to skip key lookups.
+ */
+final class MarkupWatch {
+
+  private final AutoWire autoWire;
+
+  private final Application application;
+
+  private final boolean frozen;
+
+  // listener of each watched resource
+  private final ConcurrentMap<String, Listener> listeners = new ConcurrentHashMap<String, Listener>();
+
+  MarkupWatch(final AutoWire autoWire, final Application application) {
+    this.autoWire = autoWire;
+    this.application = application;
+    this.frozen = application.usesDeploymentConfig()
+                  && application.getResourceSettings().getResourcePollFrequency() == null;
+  }
+
+  public boolean isFrozen() {
+    return frozen;
+  }
+
+  /**
+   * Drops the plans of the markup, when the watcher reports a change of its
+   * file or the file of its base markup.
+   */
+  public void watch(final IMarkupFragment markup) {
+    if (frozen) {
+      return;
+    }
+    // started by the markup cache, if resources are polled
+    final IModificationWatcher watcher = application.getResourceSettings().getResourceWatcher(false);
+    final MarkupResourceStream stream = markup.getMarkupResourceStream();
+    if (watcher == null || stream == null || stream.getResource() == null) {
+      return;
+    }
+    final String resource = MarkupKey.resource(stream);
+    if (listeners.containsKey(resource)) {
+      return;
+    }
+    final Listener listener = new Listener(resource, watcher);
+    if (listeners.putIfAbsent(resource, listener) != null) {
+      return;
+    }
+    for (MarkupResourceStream current = stream; current != null; current = current.getBaseMarkupResourceStream()) {
+      listener.add(current);
+    }
+  }
+
+  /**
+   * Removes all listeners from the watcher.
+   */
+  public void clear() {
+    for (Listener listener : listeners.values()) {
+      if (listeners.remove(listener.resource, listener)) {
+        listener.remove();
+      }
+    }
+  }
+
+  /**
+   * Listens to the files of one markup resource. It is registered for
+   * modifiables of its own, the watcher keeps one entry per modifiable and
+   * removing the markup stream itself would remove the listener of Wicket's
+   * markup cache too.
+   */
+  private final class Listener implements IChangeListener {
+
+    private final String resource;
+
+    private final IModificationWatcher watcher;
+
+    private final List<IModifiable> files = new CopyOnWriteArrayList<IModifiable>();
+
+    Listener(final String resource, final IModificationWatcher watcher) {
+      this.resource = resource;
+      this.watcher = watcher;
+    }
+
+    void add(final IModifiable stream) {
+      final IModifiable file = new IModifiable() {
+
+        @Override
+        public Time lastModifiedTime() {
+          return stream.lastModifiedTime();
+        }
+
+      };
+      files.add(file);
+      watcher.add(file, this);
+    }
+
+    void remove() {
+      for (IModifiable file : files) {
+        watcher.remove(file);
+      }
+    }
+
+    @Override
+    public void onChange() {
+      // registered again, when the plans are rebuilt from the reloaded markup
+      if (listeners.remove(resource, this)) {
+        remove();
+        autoWire.invalidate(resource);
+      }
+    }
+
+  }
+
+}
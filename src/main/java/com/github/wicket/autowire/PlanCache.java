@@ -0,0 +1,231 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law
+ * or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.github.wicket.autowire;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Bounded cache of markup plans. Entries are evicted if they were not used
+ * for a while, or - least recently used first - if there are too many of
+ * them. Restored entries, that have not been used since, are evicted before
+ * any other: their markup may have changed since the snapshot. Eviction is
+ * done by {@link #maintain()}, which runs on the maintenance executor and
+ * never on a request thread.
+ */
+final class PlanCache<K, V> extends ComputingCache<K, V> {
+
+  // last access times are only updated with this resolution
+  private static final long ACCESS_RESOLUTION = 1000;
+
+  private final ConcurrentMap<K, Entry<V>> entries = new ConcurrentHashMap<K, Entry<V>>();
+
+  private final int maximumSize;
+
+  private final long expireAfterAccess;
+
+  private final CacheStatistics statistics;
+
+  private final Executor executor;
+
+  private final AtomicBoolean maintenancePending = new AtomicBoolean();
+
+  private final Runnable maintenance = new Runnable() {
+
+    @Override
+    public void run() {
+      maintain();
+    }
+
+  };
+
+  public PlanCache(final int maximumSize, final long expireAfterAccess, final CacheStatistics statistics,
+                   final Executor executor) {
+    this.maximumSize = maximumSize;
+    this.expireAfterAccess = expireAfterAccess;
+    this.statistics = statistics;
+    this.executor = executor;
+  }
+
+  @Override
+  public V get(final K key) {
+    final Entry<V> entry = entries.get(key);
+    if (entry == null) {
+      return null;
+    }
+    statistics.recordHit();
+    entry.touch(System.currentTimeMillis());
+    return entry.value;
+  }
+
+  @Override
+  protected void put(final K key, final V value) {
+    // only computed values are stored, so every put is a miss
+    statistics.recordMiss();
+    entries.put(key, new Entry<V>(value, System.currentTimeMillis(), false));
+    if (entries.size() > maximumSize) {
+      scheduleMaintenance();
+    }
+  }
+
+  /**
+   * Stores a value, that was not computed but restored, unless the key is
+   * cached already. Counted as restore instead of miss.
+   */
+  public void restore(final K key, final V value) {
+    if (entries.putIfAbsent(key, new Entry<V>(value, System.currentTimeMillis(), true)) == null) {
+      statistics.recordRestore();
+      if (entries.size() > maximumSize) {
+        scheduleMaintenance();
+      }
+    }
+  }
+
+  public int size() {
+    return entries.size();
+  }
+
+  /**
+   * Removes a value, that is not valid anymore. Counted as eviction.
+   */
+  public void invalidate(final K key) {
+    if (entries.remove(key) != null) {
+      statistics.recordEvictions(1);
+      WiringEvents.evicted(key, "invalidated");
+    }
+  }
+
+  /**
+   * @return copy of the cached values, access times are not updated
+   */
+  public Map<K, V> toMap() {
+    final Map<K, V> map = new HashMap<K, V>();
+    for (Map.Entry<K, Entry<V>> entry : entries.entrySet()) {
+      map.put(entry.getKey(), entry.getValue().value);
+    }
+    return map;
+  }
+
+  private void scheduleMaintenance() {
+    if (maintenancePending.compareAndSet(false, true)) {
+      try {
+        executor.execute(maintenance);
+      }
+      catch (RejectedExecutionException e) {
+        maintenancePending.set(false);
+      }
+    }
+  }
+
+  /**
+   * Evicts expired entries and, if the cache is still too large, the least
+   * recently used ones.
+   */
+  public void maintain() {
+    maintenancePending.set(false);
+
+    int evicted = 0;
+    final long threshold = System.currentTimeMillis() - expireAfterAccess;
+    for (Iterator<Map.Entry<K, Entry<V>>> iterator = entries.entrySet().iterator(); iterator.hasNext();) {
+      final Map.Entry<K, Entry<V>> entry = iterator.next();
+      if (entry.getValue().lastAccess < threshold) {
+        iterator.remove();
+        evicted++;
+        WiringEvents.evicted(entry.getKey(), "expired");
+      }
+    }
+
+    int excess = entries.size() - maximumSize;
+    if (excess > 0) {
+      // ranks are taken once, entries are used while they are sorted
+      final List<Candidate<K, V>> candidates = new ArrayList<Candidate<K, V>>(entries.size());
+      for (Map.Entry<K, Entry<V>> entry : entries.entrySet()) {
+        candidates.add(new Candidate<K, V>(entry.getKey(), entry.getValue()));
+      }
+      Collections.sort(candidates, new Comparator<Candidate<K, V>>() {
+
+        @Override
+        public int compare(final Candidate<K, V> o1, final Candidate<K, V> o2) {
+          return Long.compare(o1.rank, o2.rank);
+        }
+
+      });
+      for (int i = 0; i < excess && i < candidates.size(); i++) {
+        if (entries.remove(candidates.get(i).key, candidates.get(i).entry)) {
+          evicted++;
+          WiringEvents.evicted(candidates.get(i).key, "size");
+        }
+      }
+    }
+
+    if (evicted > 0) {
+      statistics.recordEvictions(evicted);
+    }
+  }
+
+  private static final class Entry<V> {
+
+    final V value;
+
+    volatile long lastAccess;
+
+    // restored and not used since
+    volatile boolean restored;
+
+    Entry(final V value, final long now, final boolean restored) {
+      this.value = value;
+      this.lastAccess = now;
+      this.restored = restored;
+    }
+
+    void touch(final long now) {
+      // avoid writing the shared entry on every hit
+      if (now - lastAccess >= ACCESS_RESOLUTION) {
+        lastAccess = now;
+      }
+      if (restored) {
+        restored = false;
+      }
+    }
+
+  }
+
+  private static final class Candidate<K, V> {
+
+    final K key;
+
+    final Entry<V> entry;
+
+    // unused restored entries first, least recently used first otherwise
+    final long rank;
+
+    Candidate(final K key, final Entry<V> entry) {
+      this.key = key;
+      this.entry = entry;
+      this.rank = entry.restored ? Long.MIN_VALUE + entry.lastAccess : entry.lastAccess;
+    }
+
+  }
+
+}
@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law
+ * or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.github.wicket.autowire;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Compiles plans, that became hot, in the background. Interpreted plans keep
+ * working until the compiled plan is swapped in, so compilation never blocks a
+ * request. Tasks submitted after {@link #shutdown()} are dropped.
+ */
+final class PlanCompiler {
+
+  private static final Logger log = LoggerFactory.getLogger(AutoWire.class);
+
+  private final int threshold;
+
+  private final int threads;
+
+  // started with the first hot plan
+  private final AtomicReference<ExecutorService> executor = new AtomicReference<ExecutorService>();
+
+  PlanCompiler(final int threshold, final int threads) {
+    this.threshold = threshold;
+    this.threads = threads;
+  }
+
+  /**
+   * @return false if plans are compiled right away
+   */
+  public boolean isTiered() {
+    return threshold > 0;
+  }
+
+  /**
+   * @return true if a plan with the given number of uses just became hot.
+   *         This is the case exactly once per plan.
+   */
+  public boolean isHot(final int uses) {
+    return uses == threshold;
+  }
+
+  public void submit(final Runnable task) {
+    final Runnable guarded = new Runnable() {
+
+      @Override
+      public void run() {
+        try {
+          task.run();
+        }
+        catch (RuntimeException e) {
+          // the interpreted plan stays in place
+          log.warn("Compilation of auto wiring plan failed", e);
+        }
+      }
+
+    };
+    if (threads <= 0) {
+      guarded.run();
+      return;
+    }
+    try {
+      getExecutor().execute(guarded);
+    }
+    catch (RejectedExecutionException e) {
+      // shut down
+    }
+  }
+
+  private ExecutorService getExecutor() {
+    ExecutorService service = executor.get();
+    if (service == null) {
+      service = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+
+        @Override
+        public Thread newThread(Runnable r) {
+          Thread thread = new Thread(r, "AutoWire compiler");
+          thread.setDaemon(true);
+          return thread;
+        }
+
+      });
+      if (!executor.compareAndSet(null, service)) {
+        service.shutdown();
+        service = executor.get();
+      }
+    }
+    return service;
+  }
+
+  public void shutdown() {
+    // rejects all further tasks
+    final ExecutorService stopped = Executors.newSingleThreadExecutor();
+    stopped.shutdown();
+    final ExecutorService service = executor.getAndSet(stopped);
+    if (service != null) {
+      service.shutdownNow();
+    }
+  }
+
+}
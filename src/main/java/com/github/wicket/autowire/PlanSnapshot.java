@@ -0,0 +1,212 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law
+ * or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.github.wicket.autowire;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.wicket.Component;
+import org.apache.wicket.application.IClassResolver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.wicket.autowire.AutoWire.Value;
+
+/**
+ * Reads and writes the markup plans of an installation. Classes are stored by
+ * name together with a fingerprint of their auto-wired fields, plans by the
+ * key of their markup. No live reflection objects are stored.
+ * <p>
+ * Plans of classes, that cannot be loaded or whose fields changed, are
+ * discarded on load. Plans of changed markup are restored, but their key never
+ * matches again. Restored plans, that are not used, are evicted before any
+ * other plan of their class.
+ */
+final class PlanSnapshot {
+
+  private static final Logger log = LoggerFactory.getLogger(AutoWire.class);
+
+  private static final int MAGIC = 0x41575053;
+
+  private static final int VERSION = 1;
+
+  // minimum number of bytes of a class: name, fingerprint, compiled flag and
+  // number of plans
+  private static final int CLASS_SIZE = 2 + 8 + 1 + 4;
+
+  // minimum number of bytes of a plan: resource, fingerprint, markup size and
+  // number of entries
+  private static final int PLAN_SIZE = 2 + 8 + 4 + 4;
+
+  private PlanSnapshot() {
+
+  }
+
+  /**
+   * Writes the plans to a temporary file, that replaces the given file.
+   * 
+   * @return the number of written markup plans
+   */
+  public static int write(final Collection<Value> values, final File file) throws IOException {
+    final File directory = file.getAbsoluteFile().getParentFile();
+    // the prefix of temporary files needs at least three characters
+    final File temp = File.createTempFile(file.getName() + "___", ".tmp", directory);
+    int count = 0;
+    boolean moved = false;
+    try {
+      final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+      try {
+        final List<Value> wired = new ArrayList<Value>();
+        for (Value value : values) {
+          if (value.isWired()) {
+            wired.add(value);
+          }
+        }
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(wired.size());
+        for (Value value : wired) {
+          final Map<MarkupKey, WiringPlan> plans = value.getPlans();
+          out.writeUTF(value.getComponentClass().getName());
+          out.writeLong(value.getFingerprint());
+          out.writeBoolean(value.isCompiled());
+          out.writeInt(plans.size());
+          for (Map.Entry<MarkupKey, WiringPlan> entry : plans.entrySet()) {
+            out.writeUTF(entry.getKey().getResource());
+            out.writeLong(entry.getKey().getFingerprint());
+            out.writeInt(entry.getKey().getSize());
+            entry.getValue().write(out);
+            count++;
+          }
+        }
+      }
+      finally {
+        out.close();
+      }
+      try {
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      }
+      catch (AtomicMoveNotSupportedException e) {
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      }
+      moved = true;
+    }
+    finally {
+      // a failed write must not leave its temporary file behind
+      if (!moved) {
+        Files.deleteIfExists(temp.toPath());
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Restores the plans of the file, that still fit the classes and markup.
+   * 
+   * @return the number of restored markup plans
+   */
+  public static int read(final AutoWire autoWire, final IClassResolver resolver, final File file)
+      throws IOException {
+    int restored = 0;
+    int discarded = 0;
+    final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+    try {
+      if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+        throw new IOException("Unsupported auto wiring snapshot " + file);
+      }
+      // counts are checked against the size of the file, so that a corrupt
+      // snapshot cannot allocate more than its size
+      final long size = file.length();
+      final int classCount = checkCount(in.readInt(), size, CLASS_SIZE, file);
+      for (int i = 0; i < classCount; i++) {
+        final String name = in.readUTF();
+        final long fingerprint = in.readLong();
+        final boolean compiled = in.readBoolean();
+        final int planCount = checkCount(in.readInt(), size, PLAN_SIZE, file);
+        final List<MarkupKey> keys = new ArrayList<MarkupKey>(planCount);
+        final List<WiringPlan> plans = new ArrayList<WiringPlan>(planCount);
+        for (int j = 0; j < planCount; j++) {
+          keys.add(new MarkupKey(in.readUTF(), in.readLong(), in.readInt()));
+          plans.add(WiringPlan.read(in, size));
+        }
+
+        final Value value = getValue(autoWire, resolver, name);
+        if (value == null || value.getFingerprint() != fingerprint) {
+          if (log.isDebugEnabled()) {
+            log.debug("Discarded snapshot of changed component class " + name);
+          }
+          discarded += planCount;
+          continue;
+        }
+        if (compiled) {
+          value.compile();
+        }
+        for (int j = 0; j < planCount; j++) {
+          if (value.restore(keys.get(j), plans.get(j))) {
+            restored++;
+          }
+          else {
+            discarded++;
+          }
+        }
+      }
+    }
+    finally {
+      in.close();
+    }
+    log.info("Restored " + restored + " markup plans from " + file + ", " + discarded + " discarded");
+    return restored;
+  }
+
+  private static int checkCount(final int count, final long size, final int minimumSize, final File file)
+      throws IOException {
+    if (count < 0 || count > size / minimumSize) {
+      throw new IOException("Corrupt auto wiring snapshot " + file + ", invalid count " + count);
+    }
+    return count;
+  }
+
+  // null if the class is gone, no component or cannot be wired anymore
+  private static Value getValue(final AutoWire autoWire, final IClassResolver resolver, final String name) {
+    try {
+      final Class<?> type = resolver.resolveClass(name);
+      if (!Component.class.isAssignableFrom(type)) {
+        return null;
+      }
+      final Value value = autoWire.getValue(type.asSubclass(Component.class));
+      return value.isWired() ? value : null;
+    }
+    catch (ClassNotFoundException e) {
+      return null;
+    }
+    catch (RuntimeException e) {
+      log.debug("Unable to restore plans of " + name, e);
+      return null;
+    }
+  }
+
+}
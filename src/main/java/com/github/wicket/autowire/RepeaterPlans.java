@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law
+ * or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.github.wicket.autowire;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.wicket.Component;
+import org.apache.wicket.MarkupContainer;
+import org.apache.wicket.MetaDataKey;
+import org.apache.wicket.markup.IMarkupFragment;
+import org.apache.wicket.markup.MarkupElement;
+import org.apache.wicket.markup.MarkupResourceStream;
+import org.apache.wicket.markup.repeater.AbstractRepeater;
+import org.apache.wicket.request.cycle.RequestCycle;
+
+import com.github.wicket.autowire.AutoWire.MarkupPlan;
+
+/**
+ * Remembers the wiring plans resolved for the items of a repeater during one
+ * request. Items of a repeater usually render the same markup, so the markup
+ * of the first item, and of the first component in each item, is keyed and
+ * looked up in the plan cache once. Further items reuse its plan.
+ * <p>
+ * Plans are found by the repeater instance, component class and wicket id, and
+ * by the identity of the markup like the markup key cache does: its first
+ * element, resource stream and size. Items with another markup, e.g. another
+ * fragment or another markup variant, never share a plan.
+ */
+final class RepeaterPlans {
+
+  private static final MetaDataKey<RepeaterPlans> KEY = new MetaDataKey<RepeaterPlans>() {
+
+    private static final long serialVersionUID = 1L;
+
+  };
+
+  private final Map<AbstractRepeater, List<Entry>> plans = new IdentityHashMap<AbstractRepeater, List<Entry>>();
+
+  /**
+   * @return the plans of the current request, or null outside of a request
+   */
+  public static RepeaterPlans get() {
+    RequestCycle cycle = RequestCycle.get();
+    if (cycle == null) {
+      return null;
+    }
+    RepeaterPlans plans = cycle.getMetaData(KEY);
+    if (plans == null) {
+      plans = new RepeaterPlans();
+      cycle.setMetaData(KEY, plans);
+    }
+    return plans;
+  }
+
+  /**
+   * @return the repeater, if the component is an item of a repeater or a
+   *         direct child of an item, null otherwise
+   */
+  public static AbstractRepeater getRepeater(Component component) {
+    MarkupContainer parent = component.getParent();
+    if (parent instanceof AbstractRepeater) {
+      return (AbstractRepeater) parent;
+    }
+    if (parent != null && parent.getParent() instanceof AbstractRepeater) {
+      return (AbstractRepeater) parent.getParent();
+    }
+    return null;
+  }
+
+  public MarkupPlan get(AbstractRepeater repeater, Component component, IMarkupFragment markup) {
+    List<Entry> entries = plans.get(repeater);
+    if (entries != null) {
+      for (int i = 0; i < entries.size(); i++) {
+        Entry entry = entries.get(i);
+        if (entry.matches(component, markup)) {
+          return entry.plan;
+        }
+      }
+    }
+    return null;
+  }
+
+  public void put(AbstractRepeater repeater, Component component, IMarkupFragment markup, MarkupPlan plan) {
+    List<Entry> entries = plans.get(repeater);
+    if (entries == null) {
+      entries = new ArrayList<Entry>(2);
+      plans.put(repeater, entries);
+    }
+    entries.add(new Entry(component, markup, plan));
+  }
+
+  private static final class Entry {
+
+    private final Class<?> componentClass;
+    private final String id;
+    // the markup, as identified by AutoWire.LastPlan
+    private final MarkupElement first;
+    private final MarkupResourceStream stream;
+    private final int size;
+    private final MarkupPlan plan;
+
+    Entry(Component component, IMarkupFragment markup, MarkupPlan plan) {
+      this.componentClass = component.getClass();
+      // items are numbered, their children share the id
+      this.id = component.getParent() instanceof AbstractRepeater ? null : component.getId();
+      this.first = markup.size() == 0 ? null : markup.get(0);
+      this.stream = markup.getMarkupResourceStream();
+      this.size = markup.size();
+      this.plan = plan;
+    }
+
+    boolean matches(Component component, IMarkupFragment markup) {
+      return componentClass == component.getClass()
+             && (id == null ? component.getParent() instanceof AbstractRepeater : id.equals(component.getId()))
+             && first != null && markup.size() == size && markup.get(0) == first
+             && markup.getMarkupResourceStream() == stream;
+    }
+
+  }
+
+}
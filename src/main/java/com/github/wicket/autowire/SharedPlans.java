@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law
+ * or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.github.wicket.autowire;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.github.wicket.autowire.AutoWire.MarkupPlan;
+
+/**
+ * Markup plans of all component classes, that share the same auto-wired
+ * fields, e.g. a class and its anonymous subclasses. A plan built by one of
+ * them is found by the others, so they do not walk the markup again.
+ * <p>
+ * Plans are referenced weakly. The plan caches of the classes keep them alive
+ * and decide how many there are and how long they stay, a plan is dropped
+ * from here once no class caches it anymore.
+ */
+final class SharedPlans {
+
+  private final ConcurrentMap<MarkupKey, PlanReference> plans = new ConcurrentHashMap<MarkupKey, PlanReference>();
+
+  private final ReferenceQueue<MarkupPlan> released = new ReferenceQueue<MarkupPlan>();
+
+  /**
+   * @return the plan of the markup, or null if no class caches one
+   */
+  public MarkupPlan get(final MarkupKey key) {
+    expunge();
+    final PlanReference reference = plans.get(key);
+    return reference == null ? null : reference.get();
+  }
+
+  /**
+   * Shares a plan, unless another class shares one for the markup already.
+   * 
+   * @return the shared plan
+   */
+  public MarkupPlan share(final MarkupKey key, final MarkupPlan plan) {
+    expunge();
+    final PlanReference created = new PlanReference(key, plan, released);
+    while (true) {
+      final PlanReference reference = plans.putIfAbsent(key, created);
+      if (reference == null) {
+        return plan;
+      }
+      final MarkupPlan shared = reference.get();
+      if (shared != null) {
+        return shared;
+      }
+      if (plans.replace(key, reference, created)) {
+        return plan;
+      }
+    }
+  }
+
+  /**
+   * Drops the plans built from the given markup resource.
+   */
+  public void invalidate(final String resource) {
+    for (Iterator<MarkupKey> iterator = plans.keySet().iterator(); iterator.hasNext();) {
+      if (iterator.next().getResource().equals(resource)) {
+        iterator.remove();
+      }
+    }
+  }
+
+  // removes the entries of plans, that have been collected
+  private void expunge() {
+    Reference<? extends MarkupPlan> reference;
+    while ((reference = released.poll()) != null) {
+      plans.remove(((PlanReference) reference).key, reference);
+    }
+  }
+
+  private static final class PlanReference extends WeakReference<MarkupPlan> {
+
+    private final MarkupKey key;
+
+    PlanReference(final MarkupKey key, final MarkupPlan plan, final ReferenceQueue<MarkupPlan> queue) {
+      super(plan, queue);
+      this.key = key;
+    }
+
+  }
+
+}
@@ -0,0 +1,327 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law
+ * or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.github.wicket.autowire;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Modifier;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+import org.apache.wicket.Application;
+import org.apache.wicket.Component;
+import org.apache.wicket.MarkupContainer;
+import org.apache.wicket.ThreadContext;
+import org.apache.wicket.core.util.resource.locator.IResourceStreamLocator;
+import org.apache.wicket.markup.ComponentTag;
+import org.apache.wicket.markup.ContainerInfo;
+import org.apache.wicket.markup.IMarkupFragment;
+import org.apache.wicket.markup.Markup;
+import org.apache.wicket.markup.MarkupFactory;
+import org.apache.wicket.markup.MarkupResourceStream;
+import org.apache.wicket.markup.MarkupStream;
+import org.apache.wicket.markup.MarkupType;
+import org.apache.wicket.markup.WicketTag;
+import org.apache.wicket.markup.html.WebPage;
+import org.apache.wicket.markup.html.border.Border;
+import org.apache.wicket.markup.html.panel.Panel;
+import org.apache.wicket.util.resource.IResourceStream;
+import org.apache.wicket.util.resource.ResourceStreamNotFoundException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Builds class and markup plans ahead of the first request. Markup is loaded
+ * the way {@link org.apache.wicket.markup.DefaultMarkupResourceStreamProvider}
+ * does, but for a component class instead of an instance. Plans are found
+ * again at runtime by their {@link MarkupKey}.
+ * <p>
+ * Only pages, panels and borders have markup of their own. Markup using
+ * inheritance (<code>&lt;wicket:extend&gt;</code>) is merged by Wicket at
+ * runtime and is skipped.
+ */
+final class WarmUp {
+
+  private static final Logger log = LoggerFactory.getLogger(AutoWire.class);
+
+  private final AutoWire autoWire;
+
+  private final Application application;
+
+  private final AutoWireSettings settings;
+
+  WarmUp(final AutoWire autoWire, final Application application, final AutoWireSettings settings) {
+    this.autoWire = autoWire;
+    this.application = application;
+    this.settings = settings;
+  }
+
+  public WarmUpReport run() {
+    final long start = System.nanoTime();
+    final Set<Class<? extends Component>> classes = getClasses();
+
+    int markupCount = 0;
+    int failureCount = 0;
+    if (!classes.isEmpty()) {
+      final int threads = Math.max(1, Math.min(settings.getWarmUpThreads(), classes.size()));
+      final ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+
+        @Override
+        public Thread newThread(Runnable r) {
+          Thread thread = new Thread(r, "AutoWire warm-up");
+          thread.setDaemon(true);
+          return thread;
+        }
+
+      });
+      try {
+        final List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+        for (final Class<? extends Component> componentClass : classes) {
+          results.add(executor.submit(new Callable<Integer>() {
+
+            @Override
+            public Integer call() {
+              ThreadContext.setApplication(application);
+              try {
+                return warmUp(componentClass);
+              }
+              finally {
+                ThreadContext.detach();
+              }
+            }
+
+          }));
+        }
+        for (Future<Integer> result : results) {
+          try {
+            markupCount += result.get();
+          }
+          catch (ExecutionException e) {
+            failureCount++;
+            log.warn("Warm up failed", e.getCause());
+          }
+        }
+      }
+      catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new RuntimeException("Interrupted during warm up", e);
+      }
+      finally {
+        executor.shutdownNow();
+      }
+    }
+
+    final WarmUpReport report = new WarmUpReport(classes.size() - failureCount, markupCount, failureCount,
+                                                 TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    log.info(report.toString());
+    return report;
+  }
+
+  /**
+   * @return number of markup files that were planned
+   */
+  private int warmUp(final Class<? extends Component> componentClass) {
+    final AutoWire.Value value = autoWire.getValue(componentClass);
+    final String tagName = getTagName(componentClass);
+    if (!value.isWired() || tagName == null) {
+      return 0;
+    }
+    int count = 0;
+    for (AutoWireSettings.MarkupVariant variant : settings.getWarmUpVariants()) {
+      final IMarkupFragment markup = getMarkup(componentClass, variant, tagName);
+      if (markup != null && value.prepare(componentClass, markup)) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * @return the tag starting the markup of the component, an empty string for
+   *         the whole markup or null if the component has no markup of its own
+   */
+  private static String getTagName(final Class<?> componentClass) {
+    if (WebPage.class.isAssignableFrom(componentClass)) {
+      return "";
+    }
+    if (Panel.class.isAssignableFrom(componentClass)) {
+      return "panel";
+    }
+    if (Border.class.isAssignableFrom(componentClass)) {
+      return "border";
+    }
+    return null;
+  }
+
+  private IMarkupFragment getMarkup(final Class<?> componentClass, final AutoWireSettings.MarkupVariant variant,
+                                    final String tagName) {
+    final IResourceStreamLocator locator = application.getResourceSettings().getResourceStreamLocator();
+    final MarkupType markupType = MarkupType.HTML_MARKUP_TYPE;
+
+    // walk up the class hierarchy like DefaultMarkupResourceStreamProvider
+    Class<?> markupClass = componentClass;
+    while (markupClass != MarkupContainer.class) {
+      final IResourceStream resource = locator.locate(markupClass, markupClass.getName().replace('.', '/'),
+                                                      variant.getStyle(), variant.getVariation(),
+                                                      variant.getLocale(), markupType.getExtension(), false);
+      if (resource != null) {
+        final MarkupResourceStream stream = new MarkupResourceStream(resource,
+                                                                     new ContainerInfo(componentClass,
+                                                                                       variant.getLocale(),
+                                                                                       variant.getStyle(),
+                                                                                       variant.getVariation(),
+                                                                                       markupType), markupClass);
+        try {
+          return getFragment(MarkupFactory.get().newMarkupParser(stream).parse(), tagName);
+        }
+        catch (IOException e) {
+          throw new RuntimeException("Unable to load markup of " + componentClass.getName(), e);
+        }
+        catch (ResourceStreamNotFoundException e) {
+          throw new RuntimeException("Unable to load markup of " + componentClass.getName(), e);
+        }
+        finally {
+          try {
+            stream.close();
+          }
+          catch (IOException e) {
+            log.debug("Unable to close markup of " + componentClass.getName(), e);
+          }
+        }
+      }
+      markupClass = markupClass.getSuperclass();
+    }
+    return null;
+  }
+
+  private static IMarkupFragment getFragment(final Markup markup, final String tagName) {
+    for (int i = 0; i < markup.size(); i++) {
+      if (markup.get(i) instanceof WicketTag && ((WicketTag) markup.get(i)).isExtendTag()) {
+        // merged at runtime
+        return null;
+      }
+    }
+    if (tagName.isEmpty()) {
+      return markup;
+    }
+
+    // like AssociatedMarkupSourcingStrategy
+    final MarkupStream stream = new MarkupStream(markup);
+    while (stream.skipUntil(ComponentTag.class)) {
+      final ComponentTag tag = stream.getTag();
+      if (tag.isOpen() || tag.isOpenClose()) {
+        if (tag instanceof WicketTag && tagName.equalsIgnoreCase(((WicketTag) tag).getName())) {
+          return stream.getMarkupFragment();
+        }
+        stream.skipToMatchingCloseTag(tag);
+      }
+      stream.next();
+    }
+    return null;
+  }
+
+  private Set<Class<? extends Component>> getClasses() {
+    final Set<Class<?>> candidates = new LinkedHashSet<Class<?>>(settings.getWarmUpClasses());
+    final ClassLoader loader = application.getApplicationSettings().getClassResolver().getClassLoader();
+    for (String packageName : settings.getWarmUpPackages()) {
+      try {
+        scan(packageName, loader, candidates);
+      }
+      catch (IOException e) {
+        log.warn("Unable to scan package " + packageName, e);
+      }
+    }
+
+    final Set<Class<? extends Component>> classes = new LinkedHashSet<Class<? extends Component>>();
+    for (Class<?> candidate : candidates) {
+      if (Component.class.isAssignableFrom(candidate) && !candidate.isInterface()
+          && !Modifier.isAbstract(candidate.getModifiers())) {
+        classes.add(candidate.asSubclass(Component.class));
+      }
+    }
+    return classes;
+  }
+
+  private static void scan(final String packageName, final ClassLoader loader, final Set<Class<?>> classes)
+    throws IOException {
+    final String path = packageName.replace('.', '/');
+    final Enumeration<URL> urls = loader.getResources(path);
+    while (urls.hasMoreElements()) {
+      final URL url = urls.nextElement();
+      if ("file".equals(url.getProtocol())) {
+        try {
+          scan(new File(url.toURI()), packageName, loader, classes);
+        }
+        catch (URISyntaxException e) {
+          log.warn("Unable to scan " + url, e);
+        }
+      }
+      else if ("jar".equals(url.getProtocol())) {
+        final JarFile jar = ((JarURLConnection) url.openConnection()).getJarFile();
+        final Enumeration<JarEntry> entries = jar.entries();
+        while (entries.hasMoreElements()) {
+          final String name = entries.nextElement().getName();
+          if (name.startsWith(path + "/") && name.endsWith(".class")) {
+            load(name.substring(0, name.length() - ".class".length()).replace('/', '.'), loader, classes);
+          }
+        }
+      }
+    }
+  }
+
+  private static void scan(final File directory, final String packageName, final ClassLoader loader,
+                           final Set<Class<?>> classes) {
+    final File[] files = directory.listFiles();
+    if (files == null) {
+      return;
+    }
+    for (File file : files) {
+      if (file.isDirectory()) {
+        scan(file, packageName + "." + file.getName(), loader, classes);
+      }
+      else if (file.getName().endsWith(".class")) {
+        load(packageName + "." + file.getName().substring(0, file.getName().length() - ".class".length()), loader,
+             classes);
+      }
+    }
+  }
+
+  private static void load(final String className, final ClassLoader loader, final Set<Class<?>> classes) {
+    try {
+      classes.add(Class.forName(className, false, loader));
+    }
+    catch (ClassNotFoundException e) {
+      log.debug("Unable to load " + className, e);
+    }
+    catch (LinkageError e) {
+      log.debug("Unable to load " + className, e);
+    }
+  }
+
+}
@@ -0,0 +1,70 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law
+ * or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.github.wicket.autowire;
+
+/**
+ * Outcome of {@link AutoWire#warmUp()}.
+ */
+public final class WarmUpReport {
+
+  private final int classCount;
+
+  private final int markupCount;
+
+  private final int failureCount;
+
+  private final long duration;
+
+  WarmUpReport(final int classCount, final int markupCount, final int failureCount, final long duration) {
+    this.classCount = classCount;
+    this.markupCount = markupCount;
+    this.failureCount = failureCount;
+    this.duration = duration;
+  }
+
+  /**
+   * @return number of component classes, whose plans were built
+   */
+  public int getClassCount() {
+    return classCount;
+  }
+
+  /**
+   * @return number of markup files, whose plans were built
+   */
+  public int getMarkupCount() {
+    return markupCount;
+  }
+
+  /**
+   * @return number of component classes, that failed to warm up
+   */
+  public int getFailureCount() {
+    return failureCount;
+  }
+
+  /**
+   * @return duration of the warm up in milliseconds
+   */
+  public long getDuration() {
+    return duration;
+  }
+
+  @Override
+  public String toString() {
+    return "Warmed up " + classCount + " component classes and " + markupCount + " markup files in " + duration
+           + "ms, " + failureCount + " failed";
+  }
+
+}
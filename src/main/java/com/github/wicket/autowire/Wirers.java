@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law
+ * or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.github.wicket.autowire;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.wicket.Component;
+
+/**
+ * Looks up generated {@link ComponentWirer}s and binds their methods to
+ * single fields.
+ */
+final class Wirers {
+
+  private static final MethodHandle GET;
+
+  private static final MethodHandle SET;
+
+  private static final MethodHandle CREATE;
+
+  static {
+    try {
+      MethodHandles.Lookup lookup = MethodHandles.lookup();
+      GET = lookup.findVirtual(ComponentWirer.class, "get",
+                               MethodType.methodType(Component.class, Component.class, int.class));
+      SET = lookup.findVirtual(ComponentWirer.class, "set",
+                               MethodType.methodType(void.class, Component.class, int.class, Component.class));
+      CREATE = lookup.findVirtual(ComponentWirer.class, "create",
+                                  MethodType.methodType(Component.class, Component.class, int.class, String.class));
+    }
+    catch (ReflectiveOperationException e) {
+      throw new ExceptionInInitializerError(e);
+    }
+  }
+
+  // wirers are bound to the component classes, like the classes themselves
+  private static final ClassValue<Wirer> wirers = new ClassValue<Wirer>() {
+
+    @Override
+    protected Wirer computeValue(Class<?> type) {
+      try {
+        Class<?> wirerClass = Class.forName(type.getName() + ComponentWirer.SUFFIX, true, type.getClassLoader());
+        if (ComponentWirer.class.isAssignableFrom(wirerClass)) {
+          ComponentWirer<?> wirer = (ComponentWirer<?>) wirerClass.getDeclaredConstructor().newInstance();
+          return new Wirer(wirer, Arrays.asList(wirer.getFieldNames()));
+        }
+      }
+      catch (ClassNotFoundException e) {
+        // no wirer generated
+      }
+      catch (ReflectiveOperationException e) {
+        throw new RuntimeException("Unable to create " + type.getName() + ComponentWirer.SUFFIX, e);
+      }
+      return new Wirer(null, null);
+    }
+
+  };
+
+  private Wirers() {
+
+  }
+
+  /**
+   * @return (Component)Component handle reading the field or null, if there is
+   *         no generated wirer for the field
+   */
+  public static MethodHandle getter(Field field) {
+    Wirer wirer = wirers.get(field.getDeclaringClass());
+    int index = wirer.indexOf(field);
+    return index < 0 ? null : MethodHandles.insertArguments(GET.bindTo(wirer.wirer), 1, index);
+  }
+
+  /**
+   * @return (Component,Component)void handle assigning the field or null
+   */
+  public static MethodHandle setter(Field field) {
+    Wirer wirer = wirers.get(field.getDeclaringClass());
+    int index = wirer.indexOf(field);
+    return index < 0 ? null : MethodHandles.insertArguments(SET.bindTo(wirer.wirer), 1, index);
+  }
+
+  /**
+   * @return (Component,String)Component handle creating an instance of the
+   *         field's type or null
+   */
+  public static MethodHandle factory(Field field) {
+    Wirer wirer = wirers.get(field.getDeclaringClass());
+    int index = wirer.indexOf(field);
+    return index < 0 ? null : MethodHandles.insertArguments(CREATE.bindTo(wirer.wirer), 1, index);
+  }
+
+  private static final class Wirer {
+
+    final ComponentWirer<?> wirer;
+
+    final List<String> fieldNames;
+
+    Wirer(ComponentWirer<?> wirer, List<String> fieldNames) {
+      this.wirer = wirer;
+      this.fieldNames = fieldNames;
+    }
+
+    int indexOf(Field field) {
+      return wirer == null ? -1 : fieldNames.indexOf(field.getName());
+    }
+
+  }
+
+}
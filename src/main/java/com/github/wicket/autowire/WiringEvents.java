@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law
+ * or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.github.wicket.autowire;
+
+/**
+ * Emits Java Flight Recorder events of plan building, wiring and cache
+ * eviction, so auto wiring shows up in a recording next to GC and lock events.
+ * On runtimes without Flight Recorder, and if no recording is running, each
+ * call costs a flag check.
+ * 
+ * @see JfrEvents
+ */
+final class WiringEvents {
+
+  private static final boolean AVAILABLE = isAvailable();
+
+  private WiringEvents() {
+  }
+
+  private static boolean isAvailable() {
+    try {
+      Class.forName("jdk.jfr.Event", false, WiringEvents.class.getClassLoader());
+      return true;
+    }
+    catch (ClassNotFoundException e) {
+      return false;
+    }
+    catch (LinkageError e) {
+      return false;
+    }
+  }
+
+  /**
+   * @param fields
+   *          number of auto-wired fields, 0 if the class is not wired
+   */
+  static void classPlanBuilt(final Class<?> componentClass, final int fields, final long nanos) {
+    if (AVAILABLE) {
+      JfrEvents.classPlanBuilt(componentClass, fields, nanos);
+    }
+  }
+
+  /**
+   * @param children
+   *          number of components the plan adds to their parents
+   */
+  static void markupPlanBuilt(final Class<?> componentClass, final MarkupKey key, final int children,
+                              final long nanos) {
+    if (AVAILABLE) {
+      JfrEvents.markupPlanBuilt(componentClass, key, children, nanos);
+    }
+  }
+
+  /**
+   * @param children
+   *          number of components created
+   */
+  static void instantiated(final Class<?> componentClass, final int children, final long nanos) {
+    if (AVAILABLE) {
+      JfrEvents.instantiated(componentClass, children, nanos);
+    }
+  }
+
+  /**
+   * @param key
+   *          key of the markup plan used, null if the component has no markup
+   * @param children
+   *          number of components added to their parents
+   */
+  static void initialized(final Class<?> componentClass, final MarkupKey key, final int children,
+                          final long nanos) {
+    if (AVAILABLE) {
+      JfrEvents.initialized(componentClass, key, children, nanos);
+    }
+  }
+
+  /**
+   * @param cause
+   *          why the plan was evicted, e.g. expired
+   */
+  static void evicted(final Object key, final String cause) {
+    if (AVAILABLE) {
+      JfrEvents.evicted(key, cause);
+    }
+  }
+
+}
@@ -0,0 +1,191 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law
+ * or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.github.wicket.autowire;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.wicket.Component;
+import org.apache.wicket.MarkupContainer;
+import org.apache.wicket.markup.html.border.Border;
+
+/**
+ * Immutable plan to add the auto-wired components of a component to their
+ * parents. Components are stored in pre-order, so the parent of a component
+ * is always added before the component itself. Each entry consists of the
+ * index of the field holding the component, the entry of its parent and
+ * whether the component is added to the border instead of its body.
+ * <p>
+ * Components are attached in groups of siblings, with one call per parent and
+ * border flag. Siblings keep their markup order and parents are attached
+ * before their children.
+ */
+final class WiringPlan {
+
+  // parent entry of components added to the wired component itself
+  static final int ROOT = -1;
+
+  private final int[] fields;
+
+  private final int[] parents;
+
+  private final boolean[] borders;
+
+  // entries grouped by parent and border flag, groups ordered by parent entry
+  private final int[] groupEntries;
+
+  // offset of each group in groupEntries, followed by the number of entries
+  private final int[] groupOffsets;
+
+  WiringPlan(final int[] fields, final int[] parents, final boolean[] borders) {
+    this.fields = fields;
+    this.parents = parents;
+    this.borders = borders;
+
+    // counting sort of the entries by parent, body before border, plan order within both
+    final int length = fields.length;
+    final int[] entries = new int[length];
+    final List<Integer> offsets = new ArrayList<Integer>();
+    if (isOrdered()) {
+      final int[] next = new int[length + 2];
+      for (int i = 0; i < length; i++) {
+        next[parents[i] + 2]++;
+      }
+      for (int i = 2; i < next.length; i++) {
+        next[i] += next[i - 1];
+      }
+      for (int pass = 0; pass < 2; pass++) {
+        for (int i = 0; i < length; i++) {
+          if (borders[i] == (pass == 1)) {
+            entries[next[parents[i] + 1]++] = i;
+          }
+        }
+      }
+      for (int i = 0; i < length; i++) {
+        if (i == 0 || parents[entries[i]] != parents[entries[i - 1]]
+            || borders[entries[i]] != borders[entries[i - 1]]) {
+          offsets.add(i);
+        }
+      }
+    }
+    offsets.add(length);
+
+    this.groupEntries = entries;
+    this.groupOffsets = new int[offsets.size()];
+    for (int i = 0; i < groupOffsets.length; i++) {
+      groupOffsets[i] = offsets.get(i);
+    }
+  }
+
+  public int size() {
+    return fields.length;
+  }
+
+  /**
+   * @return false if the plan refers to fields the component class does not
+   *         have, or a parent is not added before its children
+   */
+  public boolean fits(final int fieldCount) {
+    for (int i = 0; i < fields.length; i++) {
+      if (fields[i] < 0 || fields[i] >= fieldCount) {
+        return false;
+      }
+    }
+    return isOrdered();
+  }
+
+  private boolean isOrdered() {
+    for (int i = 0; i < parents.length; i++) {
+      if (parents[i] < ROOT || parents[i] >= i) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  public void write(final DataOutput out) throws IOException {
+    out.writeInt(fields.length);
+    for (int i = 0; i < fields.length; i++) {
+      out.writeInt(fields[i]);
+      out.writeInt(parents[i]);
+      out.writeBoolean(borders[i]);
+    }
+  }
+
+  /**
+   * Reads a plan written by {@link #write(DataOutput)}.
+   * 
+   * @param limit
+   *          the number of bytes, that may be left in the input at most
+   */
+  public static WiringPlan read(final DataInput in, final long limit) throws IOException {
+    final int length = in.readInt();
+    // field, parent and border flag of each entry
+    if (length < 0 || length > limit / 9) {
+      throw new IOException("Invalid plan size " + length);
+    }
+    final int[] fields = new int[length];
+    final int[] parents = new int[length];
+    final boolean[] borders = new boolean[length];
+    for (int i = 0; i < length; i++) {
+      fields[i] = in.readInt();
+      parents[i] = in.readInt();
+      borders[i] = in.readBoolean();
+    }
+    return new WiringPlan(fields, parents, borders);
+  }
+
+  /**
+   * Adds the components of the given fields of the component to their
+   * parents.
+   */
+  public void initialize(final Component component, final FieldAccessor[] accessors) {
+    final int length = fields.length;
+    if (length == 0) {
+      return;
+    }
+    final Component[] slots = new Component[length];
+    for (int i = 0; i < length; i++) {
+      slots[i] = accessors[fields[i]].resolve(component);
+    }
+    for (int g = 0; g < groupOffsets.length - 1; g++) {
+      final int from = groupOffsets[g];
+      final int to = groupOffsets[g + 1];
+      final int first = groupEntries[from];
+      final int parent = parents[first];
+      final Component container = parent == ROOT ? component : slots[parent];
+      final Component[] children = new Component[to - from];
+      for (int i = from; i < to; i++) {
+        children[i - from] = slots[groupEntries[i]];
+      }
+      if (borders[first]) {
+        ((Border) container).addToBorder(children);
+      }
+      else {
+        ((MarkupContainer) container).add(children);
+      }
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "WiringPlan{fields=" + Arrays.toString(fields) + ", parents=" + Arrays.toString(parents) + ", borders="
+           + Arrays.toString(borders) + '}';
+  }
+
+}
@@ -0,0 +1,320 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law
+ * or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.github.wicket.autowire;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.wicket.MetaDataKey;
+import org.apache.wicket.request.cycle.RequestCycle;
+
+/**
+ * What auto wiring did during one request: the components created for each
+ * field, markup plan cache hits and misses, plan build times and the time
+ * spent per component class. Durations are in nanoseconds, the times of a
+ * class or field include the wiring of the components it creates.
+ * <p>
+ * Profiles are collected if enabled by
+ * {@link AutoWireSettings#setProfiling(boolean)}, by default in development
+ * mode only.
+ * 
+ * @see WiringProfilePanel
+ * @see AutoWire#getLastProfile()
+ */
+public final class WiringProfile {
+
+  private static final MetaDataKey<WiringProfile> KEY = new MetaDataKey<WiringProfile>() {
+
+    private static final long serialVersionUID = 1L;
+
+  };
+
+  private final Map<Class<?>, ClassProfile> classes = new LinkedHashMap<Class<?>, ClassProfile>();
+
+  private final Map<Field, FieldProfile> fields = new LinkedHashMap<Field, FieldProfile>();
+
+  // nesting of instantiations and initializations, only the outermost count for the wiring time
+  private int depth;
+
+  private long wiringTime;
+
+  /**
+   * @return the profile of the current request, null outside of a request or
+   *         if nothing was wired yet
+   */
+  public static WiringProfile get() {
+    RequestCycle cycle = RequestCycle.get();
+    return cycle == null ? null : cycle.getMetaData(KEY);
+  }
+
+  static WiringProfile get(RequestCycle cycle) {
+    return cycle.getMetaData(KEY);
+  }
+
+  /**
+   * @return the profile of the current request, created on first use, or null
+   *         outside of a request
+   */
+  static WiringProfile forRequest() {
+    RequestCycle cycle = RequestCycle.get();
+    if (cycle == null) {
+      return null;
+    }
+    WiringProfile profile = cycle.getMetaData(KEY);
+    if (profile == null) {
+      profile = new WiringProfile();
+      cycle.setMetaData(KEY, profile);
+    }
+    return profile;
+  }
+
+  private ClassProfile of(Class<?> componentClass) {
+    ClassProfile profile = classes.get(componentClass);
+    if (profile == null) {
+      profile = new ClassProfile(componentClass.getName());
+      classes.put(componentClass, profile);
+    }
+    return profile;
+  }
+
+  void enter() {
+    depth++;
+  }
+
+  void instantiated(Class<?> componentClass, long nanos) {
+    ClassProfile profile = of(componentClass);
+    profile.instantiationCount++;
+    profile.instantiationTime += nanos;
+    exit(nanos);
+  }
+
+  void initialized(Class<?> componentClass, long nanos) {
+    ClassProfile profile = of(componentClass);
+    profile.initializationCount++;
+    profile.initializationTime += nanos;
+    exit(nanos);
+  }
+
+  private void exit(long nanos) {
+    if (--depth == 0) {
+      wiringTime += nanos;
+    }
+  }
+
+  void created(Field field, long nanos) {
+    FieldProfile profile = fields.get(field);
+    if (profile == null) {
+      profile = new FieldProfile(field.getDeclaringClass().getName() + "#" + field.getName());
+      fields.put(field, profile);
+    }
+    profile.count++;
+    profile.time += nanos;
+  }
+
+  void classPlanBuilt(Class<?> componentClass, long nanos) {
+    of(componentClass).planBuildTime += nanos;
+  }
+
+  void markupCacheHit(Class<?> componentClass) {
+    of(componentClass).markupCacheHitCount++;
+  }
+
+  void markupPlanBuilt(Class<?> componentClass, long nanos) {
+    ClassProfile profile = of(componentClass);
+    profile.markupCacheMissCount++;
+    profile.planBuildTime += nanos;
+  }
+
+  /**
+   * @return time spent wiring, without nested wiring counted twice
+   */
+  public long getWiringTime() {
+    return wiringTime;
+  }
+
+  /**
+   * @return number of components created for auto-wired fields
+   */
+  public long getComponentCount() {
+    long count = 0;
+    for (FieldProfile profile : fields.values()) {
+      count += profile.count;
+    }
+    return count;
+  }
+
+  public long getMarkupCacheHitCount() {
+    long count = 0;
+    for (ClassProfile profile : classes.values()) {
+      count += profile.markupCacheHitCount;
+    }
+    return count;
+  }
+
+  public long getMarkupCacheMissCount() {
+    long count = 0;
+    for (ClassProfile profile : classes.values()) {
+      count += profile.markupCacheMissCount;
+    }
+    return count;
+  }
+
+  /**
+   * @return time spent building class and markup plans
+   */
+  public long getPlanBuildTime() {
+    long time = 0;
+    for (ClassProfile profile : classes.values()) {
+      time += profile.planBuildTime;
+    }
+    return time;
+  }
+
+  /**
+   * @return the wired component classes, most expensive first
+   */
+  public List<ClassProfile> getComponentClasses() {
+    List<ClassProfile> result = new ArrayList<ClassProfile>(classes.values());
+    Collections.sort(result, new Comparator<ClassProfile>() {
+
+      @Override
+      public int compare(ClassProfile o1, ClassProfile o2) {
+        return Long.compare(o2.getTime(), o1.getTime());
+      }
+
+    });
+    return result;
+  }
+
+  /**
+   * @return the fields components were created for, most expensive first
+   */
+  public List<FieldProfile> getFields() {
+    List<FieldProfile> result = new ArrayList<FieldProfile>(fields.values());
+    Collections.sort(result, new Comparator<FieldProfile>() {
+
+      @Override
+      public int compare(FieldProfile o1, FieldProfile o2) {
+        return Long.compare(o2.getTime(), o1.getTime());
+      }
+
+    });
+    return result;
+  }
+
+  @Override
+  public String toString() {
+    return "WiringProfile{wiringTime=" + wiringTime + ", components=" + getComponentCount() + ", markupCacheHits="
+           + getMarkupCacheHitCount() + ", markupCacheMisses=" + getMarkupCacheMissCount() + ", planBuildTime="
+           + getPlanBuildTime() + '}';
+  }
+
+  /**
+   * Wiring of the components of a class during the request.
+   */
+  public static final class ClassProfile {
+
+    private final String name;
+    private long instantiationCount;
+    private long instantiationTime;
+    private long initializationCount;
+    private long initializationTime;
+    private long markupCacheHitCount;
+    private long markupCacheMissCount;
+    private long planBuildTime;
+
+    ClassProfile(final String name) {
+      this.name = name;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public long getInstantiationCount() {
+      return instantiationCount;
+    }
+
+    public long getInstantiationTime() {
+      return instantiationTime;
+    }
+
+    public long getInitializationCount() {
+      return initializationCount;
+    }
+
+    public long getInitializationTime() {
+      return initializationTime;
+    }
+
+    public long getMarkupCacheHitCount() {
+      return markupCacheHitCount;
+    }
+
+    public long getMarkupCacheMissCount() {
+      return markupCacheMissCount;
+    }
+
+    /**
+     * @return time spent building the class plan and markup plans
+     */
+    public long getPlanBuildTime() {
+      return planBuildTime;
+    }
+
+    /**
+     * @return instantiation and initialization time
+     */
+    public long getTime() {
+      return instantiationTime + initializationTime;
+    }
+
+  }
+
+  /**
+   * Components created for an auto-wired field during the request.
+   */
+  public static final class FieldProfile {
+
+    private final String name;
+    private long count;
+    private long time;
+
+    FieldProfile(final String name) {
+      this.name = name;
+    }
+
+    /**
+     * @return declaring class and name of the field
+     */
+    public String getName() {
+      return name;
+    }
+
+    public long getCount() {
+      return count;
+    }
+
+    public long getTime() {
+      return time;
+    }
+
+  }
+
+}
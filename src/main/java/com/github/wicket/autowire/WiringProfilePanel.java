@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law
+ * or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.github.wicket.autowire;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import org.apache.wicket.markup.html.basic.Label;
+import org.apache.wicket.markup.html.list.ListItem;
+import org.apache.wicket.markup.html.list.ListView;
+import org.apache.wicket.markup.html.panel.Panel;
+import org.apache.wicket.model.AbstractReadOnlyModel;
+
+import com.github.wicket.autowire.WiringProfile.ClassProfile;
+import com.github.wicket.autowire.WiringProfile.FieldProfile;
+
+/**
+ * Shows the {@link WiringProfile} of the current request, e.g. as contribution
+ * to the debug bar of wicket-devutils. Components wired after the panel was
+ * rendered are not part of it, so it is best placed at the end of a page.
+ */
+public class WiringProfilePanel extends Panel {
+
+  private static final long serialVersionUID = 1L;
+
+  public WiringProfilePanel(final String id) {
+    super(id);
+  }
+
+  @Override
+  protected void onInitialize() {
+    super.onInitialize();
+
+    add(new Label("summary", new AbstractReadOnlyModel<String>() {
+
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      public String getObject() {
+        WiringProfile profile = WiringProfile.get();
+        if (profile == null) {
+          return "No components wired, or profiling is disabled";
+        }
+        return "Wiring " + format(profile.getWiringTime()) + ", " + profile.getComponentCount()
+               + " components created, markup plans " + profile.getMarkupCacheHitCount() + " hits / "
+               + profile.getMarkupCacheMissCount() + " misses, plans built in " + format(profile.getPlanBuildTime());
+      }
+
+    }));
+
+    add(new ListView<ClassProfile>("classes", new AbstractReadOnlyModel<List<ClassProfile>>() {
+
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      public List<ClassProfile> getObject() {
+        WiringProfile profile = WiringProfile.get();
+        return profile == null ? Collections.<ClassProfile> emptyList() : profile.getComponentClasses();
+      }
+
+    }) {
+
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected void populateItem(ListItem<ClassProfile> item) {
+        ClassProfile profile = item.getModelObject();
+        item.add(new Label("name", profile.getName()));
+        item.add(new Label("instantiations", profile.getInstantiationCount() + " / "
+                                             + format(profile.getInstantiationTime())));
+        item.add(new Label("initializations", profile.getInitializationCount() + " / "
+                                              + format(profile.getInitializationTime())));
+        item.add(new Label("markup", profile.getMarkupCacheHitCount() + " / " + profile.getMarkupCacheMissCount()));
+        item.add(new Label("plans", format(profile.getPlanBuildTime())));
+      }
+
+    });
+
+    add(new ListView<FieldProfile>("fields", new AbstractReadOnlyModel<List<FieldProfile>>() {
+
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      public List<FieldProfile> getObject() {
+        WiringProfile profile = WiringProfile.get();
+        return profile == null ? Collections.<FieldProfile> emptyList() : profile.getFields();
+      }
+
+    }) {
+
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected void populateItem(ListItem<FieldProfile> item) {
+        FieldProfile profile = item.getModelObject();
+        item.add(new Label("name", profile.getName()));
+        item.add(new Label("count", String.valueOf(profile.getCount())));
+        item.add(new Label("time", format(profile.getTime())));
+      }
+
+    });
+  }
+
+  private static String format(long nanos) {
+    return String.format(Locale.ROOT, "%.3f ms", nanos / 1000000.0);
+  }
+
+}
@@ -0,0 +1,286 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law
+ * or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.github.wicket.autowire.processor;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic.Kind;
+
+import com.github.wicket.autowire.AutoComponent;
+import com.github.wicket.autowire.AutoItem;
+import com.github.wicket.autowire.ComponentWirer;
+
+/**
+ * Generates a {@link ComponentWirer} for every class declaring
+ * {@link AutoComponent} fields, so they are read, assigned and created without
+ * reflection at runtime.
+ * <p>
+ * The processor is not registered as a service, enable it explicitly, e.g. by
+ * listing it in the <code>annotationProcessors</code> of the
+ * maven-compiler-plugin. Classes whose fields or constructors can't be
+ * accessed from generated code in the same package, e.g. private fields, are
+ * skipped and fall back to reflection.
+ */
+public class AutoWireProcessor extends AbstractProcessor {
+
+  @Override
+  public Set<String> getSupportedAnnotationTypes() {
+    return Collections.singleton(AutoComponent.class.getName());
+  }
+
+  @Override
+  public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override
+  public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+    Set<TypeElement> types = new LinkedHashSet<TypeElement>();
+    for (Element element : roundEnv.getElementsAnnotatedWith(AutoComponent.class)) {
+      if (element.getKind() == ElementKind.FIELD) {
+        types.add((TypeElement) element.getEnclosingElement());
+      }
+    }
+    for (TypeElement type : types) {
+      List<VariableElement> fields = new ArrayList<VariableElement>();
+      for (VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+        if (field.getAnnotation(AutoComponent.class) != null) {
+          fields.add(field);
+        }
+      }
+      String reason = unsupported(type, fields);
+      if (reason != null) {
+        processingEnv.getMessager().printMessage(Kind.NOTE, "No wirer generated for " + type.getQualifiedName()
+                                                            + ", auto-wiring falls back to reflection: " + reason,
+                                                 type);
+      }
+      else {
+        generate(type, fields);
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return why no wirer can be generated for the type or null
+   */
+  private String unsupported(TypeElement type, List<VariableElement> fields) {
+    if (!isAccessible(type, type)) {
+      return "the class is not accessible";
+    }
+    for (VariableElement field : fields) {
+      Set<Modifier> modifiers = field.getModifiers();
+      if (modifiers.contains(Modifier.PRIVATE) || modifiers.contains(Modifier.FINAL)
+          || modifiers.contains(Modifier.STATIC)) {
+        return "field " + field.getSimpleName() + " is private, final or static";
+      }
+      TypeMirror fieldType = field.asType();
+      TypeElement component = processingEnv.getElementUtils().getTypeElement("org.apache.wicket.Component");
+      if (fieldType.getKind() != TypeKind.DECLARED
+          || !processingEnv.getTypeUtils().isAssignable(fieldType, component.asType())) {
+        return "field " + field.getSimpleName() + " is not a component";
+      }
+      TypeElement fieldClass = (TypeElement) ((DeclaredType) fieldType).asElement();
+      if (!isAccessible(fieldClass, type)) {
+        return "the type of field " + field.getSimpleName() + " is not accessible";
+      }
+      if (isInjected(field) && !isCreatable(fieldClass, type)) {
+        return "field " + field.getSimpleName() + " has no accessible constructor with the wicket id as only parameter";
+      }
+    }
+    return null;
+  }
+
+  // list views of @AutoItem fields are created by AutoWire
+  private static boolean isInjected(VariableElement field) {
+    return field.getAnnotation(AutoComponent.class).inject() && field.getAnnotation(AutoItem.class) == null;
+  }
+
+  private boolean isAccessible(TypeElement type, TypeElement from) {
+    if (type.getNestingKind() != NestingKind.TOP_LEVEL && type.getNestingKind() != NestingKind.MEMBER) {
+      return false;
+    }
+    for (Element element = type; element instanceof TypeElement; element = element.getEnclosingElement()) {
+      if (!isAccessible(element, from)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private boolean isAccessible(Element element, TypeElement from) {
+    Set<Modifier> modifiers = element.getModifiers();
+    if (modifiers.contains(Modifier.PUBLIC)) {
+      return true;
+    }
+    // package private and protected members are accessible from the generated class in the same package only
+    return !modifiers.contains(Modifier.PRIVATE) && packageOf(element).equals(packageOf(from));
+  }
+
+  private boolean isCreatable(TypeElement type, TypeElement from) {
+    if (type.getKind() != ElementKind.CLASS || type.getModifiers().contains(Modifier.ABSTRACT)) {
+      return false;
+    }
+    if (isInner(type)
+        && !processingEnv.getTypeUtils().isSubtype(processingEnv.getTypeUtils().erasure(from.asType()),
+                                                   processingEnv.getTypeUtils().erasure(type.getEnclosingElement()
+                                                                                            .asType()))) {
+      return false;
+    }
+    for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+      List<? extends VariableElement> parameters = constructor.getParameters();
+      if (parameters.size() == 1 && parameters.get(0).asType().toString().equals(String.class.getName())
+          && isAccessible(constructor, from)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean isInner(TypeElement type) {
+    return type.getNestingKind() == NestingKind.MEMBER && !type.getModifiers().contains(Modifier.STATIC);
+  }
+
+  private PackageElement packageOf(Element element) {
+    return processingEnv.getElementUtils().getPackageOf(element);
+  }
+
+  private void generate(TypeElement type, List<VariableElement> fields) {
+    String packageName = packageOf(type).getQualifiedName().toString();
+    String binaryName = processingEnv.getElementUtils().getBinaryName(type).toString();
+    String simpleName = (packageName.isEmpty() ? binaryName : binaryName.substring(packageName.length() + 1))
+                        + ComponentWirer.SUFFIX;
+    String typeName = rawName(type);
+
+    try {
+      PrintWriter out = new PrintWriter(processingEnv.getFiler()
+                                                     .createSourceFile(packageName.isEmpty() ? simpleName
+                                                                                             : packageName + "."
+                                                                                               + simpleName, type)
+                                                     .openWriter());
+      try {
+        if (!packageName.isEmpty()) {
+          out.println("package " + packageName + ";");
+          out.println();
+        }
+        out.println("/**");
+        out.println(" * Wires the auto components of {@link " + typeName + "}.");
+        out.println(" * Generated by " + AutoWireProcessor.class.getName() + ", do not edit.");
+        out.println(" */");
+        out.println("@SuppressWarnings({ \"rawtypes\", \"unchecked\" })");
+        out.println("public final class " + simpleName + " implements " + ComponentWirer.class.getName() + "<"
+                    + typeName + "> {");
+        out.println();
+        out.print("  private static final String[] FIELDS = {");
+        for (int i = 0; i < fields.size(); i++) {
+          out.print((i == 0 ? " \"" : ", \"") + fields.get(i).getSimpleName() + "\"");
+        }
+        out.println(" };");
+        out.println();
+        out.println("  @Override");
+        out.println("  public String[] getFieldNames() {");
+        out.println("    return FIELDS.clone();");
+        out.println("  }");
+        out.println();
+        out.println("  @Override");
+        out.println("  public org.apache.wicket.Component get(" + typeName + " component, int field) {");
+        out.println("    switch (field) {");
+        for (int i = 0; i < fields.size(); i++) {
+          out.println("      case " + i + ":");
+          out.println("        return component." + fields.get(i).getSimpleName() + ";");
+        }
+        out.println("      default:");
+        out.println("        throw new IndexOutOfBoundsException(String.valueOf(field));");
+        out.println("    }");
+        out.println("  }");
+        out.println();
+        out.println("  @Override");
+        out.println("  public void set(" + typeName + " component, int field, org.apache.wicket.Component value) {");
+        out.println("    switch (field) {");
+        for (int i = 0; i < fields.size(); i++) {
+          VariableElement field = fields.get(i);
+          out.println("      case " + i + ":");
+          out.println("        component." + field.getSimpleName() + " = (" + rawName(fieldClass(field)) + ") value;");
+          out.println("        return;");
+        }
+        out.println("      default:");
+        out.println("        throw new IndexOutOfBoundsException(String.valueOf(field));");
+        out.println("    }");
+        out.println("  }");
+        out.println();
+        out.println("  @Override");
+        out.println("  public org.apache.wicket.Component create(" + typeName + " component, int field, String id) {");
+        out.println("    switch (field) {");
+        for (int i = 0; i < fields.size(); i++) {
+          VariableElement field = fields.get(i);
+          TypeElement fieldClass = fieldClass(field);
+          if (!isInjected(field)) {
+            // never created by auto wiring
+            continue;
+          }
+          out.println("      case " + i + ":");
+          if (isInner(fieldClass)) {
+            out.println("        return ((" + rawName((TypeElement) fieldClass.getEnclosingElement())
+                        + ") component).new " + fieldClass.getSimpleName() + "(id);");
+          }
+          else {
+            out.println("        return new " + rawName(fieldClass) + "(id);");
+          }
+        }
+        out.println("      default:");
+        out.println("        throw new IllegalArgumentException(\"Field \" + field + \" is not injected\");");
+        out.println("    }");
+        out.println("  }");
+        out.println();
+        out.println("}");
+      }
+      finally {
+        out.close();
+      }
+    }
+    catch (IOException e) {
+      processingEnv.getMessager().printMessage(Kind.ERROR, "Unable to generate " + simpleName + ": " + e, type);
+    }
+  }
+
+  private static TypeElement fieldClass(VariableElement field) {
+    return (TypeElement) ((DeclaredType) field.asType()).asElement();
+  }
+
+  private static String rawName(TypeElement type) {
+    return type.getQualifiedName().toString();
+  }
+
+}
@@ -0,0 +1,81 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law
+ * or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.github.wicket.autowire;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+import org.apache.wicket.util.tester.WicketTester;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+/**
+ * Base of the tests of a single feature. Like {@link AutoWireTest},
+ * {@link CompiledAutoWireTest} and {@link ReflectiveAutoWireTest} each test
+ * runs with interpreted plans, with plans compiled right away and with plans
+ * compiled without the generated wirers.
+ */
+@RunWith(Parameterized.class)
+public abstract class AbstractAutoWireTest {
+
+  enum Mode {
+    INTERPRETED, COMPILED, REFLECTIVE
+  }
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  protected WicketTester tester;
+
+  private final Mode mode;
+
+  protected AbstractAutoWireTest(final Mode mode) {
+    this.mode = mode;
+  }
+
+  @Parameters
+  public static Collection<Object[]> modes() {
+    return Arrays.asList(new Object[][] { { Mode.INTERPRETED }, { Mode.COMPILED }, { Mode.REFLECTIVE } });
+  }
+
+  @Before
+  public void setUp() {
+    this.tester = new AutoWireTester(newSettings());
+  }
+
+  @After
+  public void tearDown() {
+    // null if the test destroyed it already
+    if (this.tester != null) {
+      this.tester.destroy();
+    }
+  }
+
+  protected AutoWireSettings newSettings() {
+    switch (mode) {
+      case COMPILED:
+        return new AutoWireSettings().setCompileThreshold(0);
+      case REFLECTIVE:
+        return new AutoWireSettings().setCompileThreshold(0).setUseGeneratedWirers(false);
+      default:
+        return new AutoWireSettings();
+    }
+  }
+
+}
@@ -0,0 +1,207 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law
+ * or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.github.wicket.autowire;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import org.apache.wicket.Page;
+import org.apache.wicket.markup.html.WebMarkupContainer;
+import org.apache.wicket.markup.html.basic.Label;
+import org.apache.wicket.util.tester.WicketTester;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Guards the allocations auto wiring adds to a request. Each fixture page is
+ * rendered warm, once auto-wired and once by a manual equivalent, and the
+ * difference of the bytes allocated per render must stay within a budget.
+ * Budgets are set just above the measured overhead, so that regressions like
+ * rendering the markup to key it show up. They are scaled by the system
+ * property <code>autowire.allocationBudgetFactor</code>. The budget of the
+ * large page depends on how far the JIT got within a few renders, it is only
+ * checked with the system property <code>autowire.largePageBudget</code>, set
+ * by the <code>allocation-budgets</code> profile.
+ */
+public class AllocationTest {
+
+  // small pages are rendered often enough for the JIT to settle
+  private static final int WARM_UP = 300;
+
+  private static final int RENDERS = 200;
+
+  private static final int ROUNDS = 3;
+
+  @Before
+  public void setUp() {
+    assumeTrue(isSupported());
+  }
+
+  @Test
+  public void testBasicPage() {
+    // allocates 3 to 5 KB less than its manual equivalent
+    assertOverhead(BasicPage.class, ManualBasicPage.class, 0, WARM_UP, RENDERS);
+  }
+
+  @Test
+  public void testBorderPage() {
+    // 0.1 to 0.9 KB
+    assertOverhead(BorderPage.class, ManualBorderPage.class, 1536, WARM_UP, RENDERS);
+  }
+
+  @Test
+  public void testSubClassPage() {
+    assertOverhead(SubClassPage.class, ManualSubClassPage.class, 0, WARM_UP, RENDERS);
+  }
+
+  @Test
+  public void testContainerPage() {
+    assertOverhead(ContainerPage.class, ManualContainerPage.class, 0, WARM_UP, RENDERS);
+  }
+
+  @Test
+  public void testPerformanceTest() {
+    assumeTrue(Boolean.getBoolean("autowire.largePageBudget"));
+    // 0.45 to 0.95 MB of about 23 MB per render, depending on the JIT
+    assertOverhead(PerformanceTest.class, PerformanceCompareTest.class, 1152 * 1024, 30, 10);
+  }
+
+  private void assertOverhead(Class<? extends Page> page, Class<? extends Page> equivalent, long budget,
+                              int warmUp, int renders) {
+    // testers are bound to the thread, only one may exist at a time. Plans are
+    // compiled right away, a large page is not rendered often enough otherwise
+    WicketTester tester = new AutoWireTester(new AutoWireSettings().setRegisterMBean(false).setProfiling(false)
+                                                                   .setCompileThreshold(0));
+    long autoWired;
+    try {
+      autoWired = allocatedPerRender(tester, page, warmUp, renders);
+    }
+    finally {
+      tester.destroy();
+    }
+    tester = new WicketTester();
+    long manual;
+    try {
+      manual = allocatedPerRender(tester, equivalent, warmUp, renders);
+    }
+    finally {
+      tester.destroy();
+    }
+
+    long overhead = autoWired - manual;
+    long limit = (long) (budget * Double.parseDouble(System.getProperty("autowire.allocationBudgetFactor", "1")));
+    assertTrue(page.getSimpleName() + " allocates " + overhead + " bytes per render more than its manual equivalent, "
+               + "budget is " + limit, overhead <= limit);
+  }
+
+  private static long allocatedPerRender(WicketTester tester, Class<? extends Page> page, int warmUp,
+                                         int renders) {
+    for (int i = 0; i < warmUp; i++) {
+      tester.startPage(page);
+    }
+    // the least of several rounds, the JIT may still remove allocations
+    long least = Long.MAX_VALUE;
+    for (int round = 0; round < ROUNDS; round++) {
+      long start = allocated();
+      for (int i = 0; i < renders; i++) {
+        tester.startPage(page);
+      }
+      least = Math.min(least, (allocated() - start) / renders);
+    }
+    return least;
+  }
+
+  private static boolean isSupported() {
+    ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    return bean instanceof com.sun.management.ThreadMXBean
+           && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()
+           && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemoryEnabled();
+  }
+
+  private static long allocated() {
+    return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+        .getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+
+  public static class ManualBasicPage extends BasicPage {
+
+    private static final long serialVersionUID = 1L;
+
+    public ManualBasicPage() {
+      link = new TestLink("link");
+      label = new Label("label");
+      add(link, label);
+    }
+
+  }
+
+  public static class ManualSubClassPage extends SubClassPage {
+
+    private static final long serialVersionUID = 1L;
+
+    public ManualSubClassPage() {
+      link = new TestLink("link");
+      label = new Label("label");
+      label2 = new Label("label2");
+      add(link, label, label2);
+    }
+
+  }
+
+  public static class ManualBorderPage extends BorderPage {
+
+    private static final long serialVersionUID = 1L;
+
+    public ManualBorderPage() {
+      border = new ManualBorder("border");
+      label1 = new Label("label1");
+      label2 = new Label("label2");
+      add(label1, border);
+      border.add(label2);
+    }
+
+  }
+
+  public static class ManualBorder extends TestBorder {
+
+    private static final long serialVersionUID = 1L;
+
+    public ManualBorder(final String id) {
+      super(id);
+      borderLabel1 = new Label("borderLabel1");
+      borderLabel2 = new Label("borderLabel2");
+      addToBorder(borderLabel1, borderLabel2);
+    }
+
+  }
+
+  public static class ManualContainerPage extends ContainerPage {
+
+    private static final long serialVersionUID = 1L;
+
+    public ManualContainerPage() {
+      container = new WebMarkupContainer("container");
+      subContainer = new WebMarkupContainer("subContainer");
+      label = new Label("label");
+      add(container);
+      container.add(subContainer);
+      subContainer.add(label);
+    }
+
+  }
+
+}
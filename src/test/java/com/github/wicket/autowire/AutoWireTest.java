@@ -13,7 +13,22 @@
  */
 package com.github.wicket.autowire;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import org.apache.wicket.Component;
+import org.apache.wicket.markup.html.basic.Label;
 import org.apache.wicket.util.tester.WicketTester;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -23,7 +38,19 @@ public class AutoWireTest {
 
   @Before
   public void setUp() {
-    this.tester = new AutoWireTester();
+    this.tester = new AutoWireTester(newSettings());
+  }
+
+  @After
+  public void tearDown() {
+    // null if the test destroyed it already
+    if (this.tester != null) {
+      this.tester.destroy();
+    }
+  }
+
+  protected AutoWireSettings newSettings() {
+    return new AutoWireSettings();
   }
 
   @Test
@@ -48,6 +75,38 @@ public class AutoWireTest {
     this.tester.startPage(SubClassPage.class);
   }
 
+  /**
+   * Assert that subclasses without fields of their own share the declarations
+   * of their super class, but not its markup plans.
+   */
+  @Test
+  public void testInheritedDeclarations() {
+    AutoWire autoWire = AutoWire.get(this.tester.getApplication());
+    this.tester.startComponentInPage(BasicPanel.class);
+    BasicPanel panel = new BasicPanel("testObject") {
+
+      private static final long serialVersionUID = 1L;
+
+    };
+    this.tester.startComponentInPage(panel);
+    assertNotNull(panel.link);
+    assertSame(panel, panel.label.getParent());
+
+    assertSame(autoWire.getDeclarations(BasicPanel.class), autoWire.getDeclarations(panel.getClass()));
+    // the plan of the super class is reused, statistics are kept per class
+    ComponentClassStatistics statistics = autoWire.getValue(panel.getClass()).getStatistics();
+    assertEquals(1, statistics.getMarkupPlanCount());
+    assertEquals(0, statistics.getMarkupPlanBuildTime());
+    assertEquals(1, statistics.getMarkupCacheMissCount());
+    assertEquals(0, statistics.getMarkupCacheHitCount());
+    statistics = autoWire.getValue(BasicPanel.class).getStatistics();
+    assertEquals(1, statistics.getMarkupCacheMissCount());
+    assertEquals(0, statistics.getMarkupCacheHitCount());
+
+    this.tester.startPage(SubClassPage.class);
+    assertFalse(autoWire.getDeclarations(BasicPage.class) == autoWire.getDeclarations(SubClassPage.class));
+  }
+
   /**
    * Assert that child components are added to containers that do not have their
    * own markup, if the child component is a field of the panel that has
@@ -67,6 +126,28 @@ public class AutoWireTest {
     this.tester.startPage(BorderPage.class);
   }
 
+  /**
+   * Assert that siblings are attached in markup order, whether the plan is
+   * interpreted or compiled.
+   */
+  @Test
+  public void testAttachOrder() {
+    assertAttachOrder(this.tester.startPage(BorderPage.class));
+    this.tester.destroy();
+    this.tester = new AutoWireTester(newSettings().setCompileThreshold(0));
+    assertAttachOrder(this.tester.startPage(BorderPage.class));
+  }
+
+  private void assertAttachOrder(BorderPage page) {
+    List<String> ids = new ArrayList<String>();
+    for (Component child : page) {
+      ids.add(child.getId());
+    }
+    assertTrue(ids.indexOf("label1") >= 0);
+    assertTrue(ids.indexOf("label1") < ids.indexOf("border"));
+    assertSame(page.border.getBodyContainer(), page.label2.getParent());
+  }
+
   /**
    * Assert that custom id annotation works. This is useful if the component id
    * is no a valid java identifier.
@@ -111,6 +192,133 @@ public class AutoWireTest {
     this.tester.startPage(ChildMarkupContainer.class);
   }
 
+  /**
+   * Assert that a component type without a suitable constructor is reported
+   * when the instantiation actions are built.
+   */
+  @Test
+  public void testMissingConstructor() {
+    try {
+      this.tester.startPage(MissingConstructorPage.class);
+      fail("page must not be created");
+    }
+    catch (RuntimeException e) {
+      Throwable cause = e;
+      while (cause.getCause() != null && !String.valueOf(cause.getMessage()).contains("no constructor with the wicket id")) {
+        cause = cause.getCause();
+      }
+      assertTrue(cause.getMessage(), String.valueOf(cause.getMessage()).contains("no constructor with the wicket id"));
+    }
+  }
+
+  /**
+   * Assert that only classes annotated with {@link AutoWired} are wired, if
+   * opt-in is required.
+   */
+  @Test
+  public void testOptIn() {
+    this.tester.destroy();
+    this.tester = new AutoWireTester(newSettings().setRequireOptIn(true));
+    this.tester.startPage(OptInPage.class);
+    try {
+      this.tester.startPage(BasicPage.class);
+      fail("BasicPage must not be auto wired");
+    }
+    catch (RuntimeException e) {
+      // expected, components are not added
+    }
+  }
+
+  /**
+   * Assert that classes of excluded packages are not wired.
+   */
+  @Test
+  public void testExcludedPackage() {
+    this.tester.destroy();
+    this.tester = new AutoWireTester(newSettings().excludePackage(BasicPage.class.getName()));
+    this.tester.startPage(BorderPage.class);
+    try {
+      this.tester.startPage(BasicPage.class);
+      fail("BasicPage must not be auto wired");
+    }
+    catch (RuntimeException e) {
+      // expected, components are not added
+    }
+  }
+
+  /**
+   * Assert that auto wiring can be removed from an application.
+   */
+  @Test
+  public void testUninstall() {
+    this.tester.startPage(BasicPage.class);
+    AutoWire.uninstall(this.tester.getApplication());
+    assertNull(AutoWire.get(this.tester.getApplication()));
+    try {
+      this.tester.startPage(BasicPage.class);
+      fail("BasicPage must not be auto wired");
+    }
+    catch (RuntimeException e) {
+      // expected, components are not added
+    }
+  }
+
+  /**
+   * Assert that auto wiring is removed when the application is destroyed.
+   */
+  @Test
+  public void testDestroy() {
+    this.tester.startPage(BasicPage.class);
+    assertNotNull(AutoWire.get(this.tester.getApplication()));
+    this.tester.destroy();
+    assertNull(AutoWire.get(this.tester.getApplication()));
+    this.tester = null;
+  }
+
+  /**
+   * Assert that wirers are generated for the test pages and that generated
+   * accessors do not need reflective access to the field.
+   */
+  @Test
+  @SuppressWarnings("deprecation")
+  public void testGeneratedWirer() throws Exception {
+    Class<?> wirer = Class.forName(BasicPage.class.getName() + ComponentWirer.SUFFIX);
+    assertTrue(ComponentWirer.class.isAssignableFrom(wirer));
+
+    java.lang.reflect.Field field = BasicPage.class.getDeclaredField("label");
+    FieldAccessor accessor = FieldAccessor.of(field, true);
+    assertFalse(field.isAccessible());
+
+    BasicPage page = new BasicPage();
+    assertSame(page.label, accessor.get(page));
+
+    // the label has no constructor with the id as only parameter
+    try {
+      Class.forName(MissingConstructorPage.class.getName() + ComponentWirer.SUFFIX);
+      fail();
+    }
+    catch (ClassNotFoundException e) {
+      // expected, falls back to reflection
+    }
+  }
+
+  /**
+   * Assert that variants of merged markup get plans of their own, although
+   * they share the elements of the base markup.
+   */
+  @Test
+  public void testMarkupVariants() {
+    this.tester.getSession().setLocale(Locale.ENGLISH);
+    this.tester.startPage(VariantPage.class);
+    this.tester.assertComponent("box:text", Label.class);
+
+    this.tester.getSession().setLocale(Locale.GERMAN);
+    this.tester.startPage(VariantPage.class);
+    this.tester.assertComponent("box:other", Label.class);
+    assertEquals(2, AutoWire.get(this.tester.getApplication()).getValue(VariantPage.class).getStatistics()
+                            .getMarkupPlanCount());
+  }
+
   /**
    * Adds a loop to check if auto-wiring is too slow.
    */
@@ -126,6 +334,7 @@ public class AutoWireTest {
    */
   @Test
   public void testPerformanceCompare() {
+    this.tester.destroy();
     this.tester = new WicketTester();
 
     long begin = System.currentTimeMillis();
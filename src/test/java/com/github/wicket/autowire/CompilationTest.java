@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law
+ * or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.github.wicket.autowire;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.wicket.util.tester.WicketTester;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests compiling plans. Each test sets the compile threshold itself, so the
+ * tests run once instead of once per wiring mode.
+ */
+public class CompilationTest {
+
+  private WicketTester tester;
+
+  @After
+  public void tearDown() {
+    if (this.tester != null) {
+      this.tester.destroy();
+    }
+  }
+
+  /**
+   * Assert that classes and markup are wired by interpreted plans first and
+   * that compiled plans replace them once they are hot.
+   */
+  @Test
+  public void testTieredCompilation() {
+    this.tester = new AutoWireTester(new AutoWireSettings().setCompileThreshold(2).setCompilerThreads(0));
+    AutoWire autoWire = AutoWire.get(this.tester.getApplication());
+
+    this.tester.startPage(BorderPage.class);
+    assertFalse(autoWire.getValue(BorderPage.class).isCompiled());
+
+    this.tester.startPage(BorderPage.class);
+    assertTrue(autoWire.getValue(BorderPage.class).isCompiled());
+
+    // compiled plans wire like interpreted ones
+    this.tester.startPage(BorderPage.class);
+    this.tester.startPage(RepeaterPage.class);
+    this.tester.startPage(RepeaterPage.class);
+    this.tester.startPage(RepeaterPage.class);
+    this.tester.assertComponent("panels:2:panel", BasicPanel.class);
+    for (ComponentClassStatistics statistics : autoWire.getStatistics().getComponentClasses()) {
+      assertTrue(statistics.getName(), statistics.isCompiled());
+    }
+  }
+
+  /**
+   * Assert that compiled plans access the fields through the generated wirers,
+   * unless they are disabled.
+   */
+  @Test
+  public void testCompiledWirer() {
+    for (boolean generated : new boolean[] { true, false }) {
+      this.tester = new AutoWireTester(new AutoWireSettings().setCompileThreshold(0)
+                                                             .setUseGeneratedWirers(generated));
+      this.tester.startPage(BasicPage.class);
+      AutoWire.Value value = AutoWire.get(this.tester.getApplication()).getValue(BasicPage.class);
+      assertTrue(value.isCompiled());
+      assertEquals(generated, value.isGenerated());
+      this.tester.destroy();
+      this.tester = null;
+    }
+  }
+
+}
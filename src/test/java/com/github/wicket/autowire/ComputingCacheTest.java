@@ -0,0 +1,173 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law
+ * or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.github.wicket.autowire;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ComputingCacheTest {
+
+  private static final int THREADS = 8;
+
+  private ExecutorService executor;
+
+  private static class MapCache extends ComputingCache<Integer, String> {
+
+    private final Map<Integer, String> values = new ConcurrentHashMap<Integer, String>();
+
+    @Override
+    public String get(Integer key) {
+      return values.get(key);
+    }
+
+    @Override
+    protected void put(Integer key, String value) {
+      values.put(key, value);
+    }
+
+  }
+
+  @Before
+  public void setUp() {
+    executor = Executors.newFixedThreadPool(THREADS);
+  }
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  /**
+   * Assert that values of different keys are computed in parallel. Each
+   * computation waits until all of them are running, so this only finishes if
+   * no computation blocks another one.
+   */
+  @Test(timeout = 10000)
+  public void testDifferentKeysInParallel() throws Exception {
+    final ComputingCache<Integer, String> cache = new MapCache();
+    final CyclicBarrier barrier = new CyclicBarrier(THREADS);
+
+    List<Future<String>> results = new ArrayList<Future<String>>();
+    for (int i = 0; i < THREADS; i++) {
+      final int key = i;
+      results.add(executor.submit(new Callable<String>() {
+
+        @Override
+        public String call() throws Exception {
+          return cache.get(key, new Callable<String>() {
+
+            @Override
+            public String call() throws Exception {
+              barrier.await(5, TimeUnit.SECONDS);
+              return "value" + key;
+            }
+
+          });
+        }
+
+      }));
+    }
+
+    for (int i = 0; i < THREADS; i++) {
+      assertEquals("value" + i, results.get(i).get());
+    }
+  }
+
+  /**
+   * Assert that threads racing on the same key wait for a single computation.
+   */
+  @Test(timeout = 10000)
+  public void testSameKeyComputedOnce() throws Exception {
+    final ComputingCache<Integer, String> cache = new MapCache();
+    final AtomicInteger computations = new AtomicInteger();
+    final CountDownLatch started = new CountDownLatch(THREADS);
+
+    List<Future<String>> results = new ArrayList<Future<String>>();
+    for (int i = 0; i < THREADS; i++) {
+      results.add(executor.submit(new Callable<String>() {
+
+        @Override
+        public String call() throws Exception {
+          started.countDown();
+          started.await();
+          return cache.get(1, new Callable<String>() {
+
+            @Override
+            public String call() throws Exception {
+              computations.incrementAndGet();
+              Thread.sleep(100);
+              return "value";
+            }
+
+          });
+        }
+
+      }));
+    }
+
+    for (Future<String> result : results) {
+      assertEquals("value", result.get());
+    }
+    assertEquals(1, computations.get());
+  }
+
+  /**
+   * Assert that a failed computation is reported and retried on the next
+   * request.
+   */
+  @Test
+  public void testFailedComputationIsRetried() {
+    ComputingCache<Integer, String> cache = new MapCache();
+    try {
+      cache.get(1, new Callable<String>() {
+
+        @Override
+        public String call() {
+          throw new IllegalStateException("failed");
+        }
+
+      });
+      fail("computation must fail");
+    }
+    catch (IllegalStateException e) {
+      assertEquals("failed", e.getMessage());
+    }
+    assertEquals("value", cache.get(1, new Callable<String>() {
+
+      @Override
+      public String call() {
+        return "value";
+      }
+
+    }));
+  }
+
+}
@@ -0,0 +1,74 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law
+ * or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.github.wicket.autowire;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import org.junit.Test;
+
+/**
+ * Tests the Flight Recorder events of auto wiring. Needs a runtime with
+ * Flight Recorder, e.g. Java 8u262 or later.
+ */
+public class FlightRecorderTest extends AbstractAutoWireTest {
+
+  public FlightRecorderTest(final Mode mode) {
+    super(mode);
+  }
+
+  /**
+   * Assert that plan building and wiring are recorded by Flight Recorder.
+   */
+  @Test
+  public void testFlightRecorderEvents() throws Exception {
+    Recording recording = new Recording();
+    recording.enable("com.github.wicket.autowire.ClassPlan");
+    recording.enable("com.github.wicket.autowire.MarkupPlan");
+    recording.enable("com.github.wicket.autowire.Instantiation");
+    recording.enable("com.github.wicket.autowire.Initialization");
+    recording.start();
+    this.tester.startPage(BasicPage.class);
+    recording.stop();
+    File file = this.folder.newFile("autowire.jfr");
+    recording.dump(file.toPath());
+    recording.close();
+
+    Set<String> events = new HashSet<String>();
+    for (RecordedEvent event : RecordingFile.readAllEvents(file.toPath())) {
+      if (event.hasField("componentClass") && event.getClass("componentClass") != null
+          && BasicPage.class.getName().equals(event.getClass("componentClass").getName())) {
+        events.add(event.getEventType().getName());
+        if (event.getEventType().getName().endsWith("Initialization")) {
+          assertEquals(2, event.getInt("children"));
+          assertTrue(event.getString("markup").startsWith(BasicPage.class.getName() + "_"));
+        }
+      }
+    }
+    assertEquals(new HashSet<String>(Arrays.asList("com.github.wicket.autowire.ClassPlan",
+                                                   "com.github.wicket.autowire.MarkupPlan",
+                                                   "com.github.wicket.autowire.Instantiation",
+                                                   "com.github.wicket.autowire.Initialization")), events);
+  }
+
+}
@@ -0,0 +1,248 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law
+ * or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.github.wicket.autowire;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeNotNull;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import javax.management.JMException;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import org.apache.wicket.Component;
+import org.apache.wicket.application.AbstractClassResolver;
+import org.apache.wicket.util.tester.WicketTester;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Measures the heap retained by the caches of auto wiring. Synthetic panel
+ * classes are generated and rendered in several markup variants. The heap
+ * released by uninstalling auto wiring afterwards is reported per class and
+ * per additional markup plan, and its median over several rounds must stay
+ * within a budget. Budgets are scaled by the system property
+ * <code>autowire.footprintBudgetFactor</code>.
+ */
+public class FootprintTest {
+
+  private static final Logger log = LoggerFactory.getLogger(FootprintTest.class);
+
+  private static final ObjectName DIAGNOSTIC_COMMAND;
+
+  static {
+    try {
+      DIAGNOSTIC_COMMAND = new ObjectName("com.sun.management:type=DiagnosticCommand");
+    }
+    catch (MalformedObjectNameException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static final int CLASSES = 100;
+
+  private static final int FIELDS = 5;
+
+  // objects of concurrent threads add to the heap, the median of the rounds is checked
+  private static final int ROUNDS = 3;
+
+  private static final List<Variant> VARIANTS = Arrays.asList(new Variant(Locale.ENGLISH, null),
+                                                              new Variant(Locale.GERMAN, null),
+                                                              new Variant(Locale.FRENCH, null),
+                                                              new Variant(Locale.ENGLISH, "compact"));
+
+  // bytes per class with its first markup plan, and per further markup plan
+  private static final long CLASS_BUDGET = 8 * 1024;
+
+  private static final long PLAN_BUDGET = 2 * 1024;
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testFootprint() throws Exception {
+    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    // runtime without compiler or class histogram
+    assumeNotNull(compiler);
+    assumeTrue(ManagementFactory.getPlatformMBeanServer().isRegistered(DIAGNOSTIC_COMMAND));
+    ClassLoader loader = generate(compiler, folder.getRoot());
+
+    // the first round also releases objects the runtime creates once, like
+    // method handle call sites
+    retained(loader, 1);
+    retained(loader, VARIANTS.size());
+
+    List<Long> classes = new ArrayList<Long>();
+    List<Long> plans = new ArrayList<Long>();
+    for (int round = 0; round < ROUNDS; round++) {
+      long first = retained(loader, 1);
+      long all = retained(loader, VARIANTS.size());
+      classes.add(first / CLASSES);
+      plans.add((all - first) / (CLASSES * (VARIANTS.size() - 1)));
+    }
+    log.info("Retained bytes per component class " + classes + ", per further markup plan " + plans);
+
+    long perClass = median(classes);
+    long perPlan = median(plans);
+    log.info("Auto wiring retains " + perClass + " bytes per component class and " + perPlan
+             + " bytes per further markup plan");
+
+    double factor = Double.parseDouble(System.getProperty("autowire.footprintBudgetFactor", "1"));
+    assertTrue(perClass + " bytes per class, budget is " + (long) (CLASS_BUDGET * factor),
+               perClass <= CLASS_BUDGET * factor);
+    assertTrue(perPlan + " bytes per markup plan, budget is " + (long) (PLAN_BUDGET * factor),
+               perPlan <= PLAN_BUDGET * factor);
+  }
+
+  /**
+   * @return the heap released by uninstalling auto wiring, after the panels
+   *         were rendered in the given number of variants
+   */
+  private static long retained(final ClassLoader loader, int variants) throws ClassNotFoundException, JMException {
+    WicketTester tester = new AutoWireTester(new AutoWireSettings().setRegisterMBean(false).setProfiling(false));
+    // the generated classes are not visible to the default class resolver
+    tester.getApplication().getApplicationSettings().setClassResolver(new AbstractClassResolver() {
+
+      @Override
+      public ClassLoader getClassLoader() {
+        return loader;
+      }
+
+    });
+    try {
+      for (Variant variant : VARIANTS.subList(0, variants)) {
+        tester.getSession().setLocale(variant.locale);
+        tester.getSession().setStyle(variant.style);
+        for (int i = 0; i < CLASSES; i++) {
+          tester.startComponentInPage(loader.loadClass("footprint.AutoPanel" + i).asSubclass(Component.class));
+        }
+      }
+      long wired = liveHeap();
+      // clears the caches
+      AutoWire.uninstall(tester.getApplication());
+      return wired - liveHeap();
+    }
+    finally {
+      tester.destroy();
+    }
+  }
+
+  /**
+   * @return the bytes of the live objects, without int arrays: the histogram
+   *         counts the unused rest of thread local allocation buffers as int
+   *         arrays, which makes their size differ between calls
+   */
+  private static long liveHeap() throws JMException {
+    String histogram = (String) ManagementFactory.getPlatformMBeanServer()
+        .invoke(DIAGNOSTIC_COMMAND, "gcClassHistogram", new Object[] { null },
+                new String[] { String[].class.getName() });
+    long bytes = 0;
+    for (String line : histogram.split("\n")) {
+      // num: #instances #bytes class name (module)
+      String[] columns = line.trim().split("\\s+");
+      if (columns.length >= 4 && columns[0].endsWith(":") && !columns[3].equals("[I")) {
+        bytes += Long.parseLong(columns[2]);
+      }
+    }
+    return bytes;
+  }
+
+  private static long median(List<Long> values) {
+    List<Long> sorted = new ArrayList<Long>(values);
+    Collections.sort(sorted);
+    return sorted.get(sorted.size() / 2);
+  }
+
+  /**
+   * Generates and compiles auto-wired panels, that provide markup for each
+   * locale and style.
+   */
+  private static ClassLoader generate(JavaCompiler compiler, File directory) throws IOException {
+    File sources = new File(directory, "footprint");
+    sources.mkdirs();
+    List<String> arguments = new ArrayList<String>(Arrays.asList("-proc:none", "-nowarn", "-d",
+                                                                 directory.getPath(), "-cp",
+                                                                 System.getProperty("java.class.path")));
+    for (int i = 0; i < CLASSES; i++) {
+      arguments.add(write(sources, "AutoPanel" + i));
+    }
+    if (compiler.run(null, null, null, arguments.toArray(new String[arguments.size()])) != 0) {
+      throw new IllegalStateException("Unable to compile synthetic panels");
+    }
+    return new URLClassLoader(new URL[] { directory.toURI().toURL() }, FootprintTest.class.getClassLoader());
+  }
+
+  private static String write(File directory, String name) throws IOException {
+    StringBuilder markup = new StringBuilder("<wicket:panel>\" + getLocale() + getStyle() + \"");
+    StringBuilder source = new StringBuilder();
+    source.append("package footprint;\n");
+    source.append("public class ").append(name).append(" extends org.apache.wicket.markup.html.panel.Panel");
+    source.append(" implements org.apache.wicket.markup.IMarkupResourceStreamProvider {\n");
+    for (int i = 0; i < FIELDS; i++) {
+      source.append("  @com.github.wicket.autowire.AutoComponent\n");
+      source.append("  org.apache.wicket.markup.html.basic.Label label").append(i).append(";\n");
+      markup.append("<span wicket:id=\\\"label").append(i).append("\\\"></span>");
+    }
+    markup.append("</wicket:panel>");
+    source.append("  public ").append(name).append("(String id) {\n    super(id);\n");
+    source.append("  }\n");
+    source.append("  public org.apache.wicket.util.resource.IResourceStream getMarkupResourceStream(");
+    source.append("org.apache.wicket.MarkupContainer container, Class<?> containerClass) {\n");
+    source.append("    return new org.apache.wicket.util.resource.StringResourceStream(\"").append(markup)
+          .append("\");\n  }\n}\n");
+
+    File file = new File(directory, name + ".java");
+    Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+    try {
+      writer.write(source.toString());
+    }
+    finally {
+      writer.close();
+    }
+    return file.getPath();
+  }
+
+  private static final class Variant {
+
+    final Locale locale;
+
+    final String style;
+
+    Variant(Locale locale, String style) {
+      this.locale = locale;
+      this.style = style;
+    }
+
+  }
+
+}
@@ -0,0 +1,63 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law
+ * or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.github.wicket.autowire;
+
+import java.util.Arrays;
+
+import org.apache.wicket.MarkupContainer;
+import org.apache.wicket.markup.html.WebMarkupContainer;
+import org.apache.wicket.markup.html.WebPage;
+import org.apache.wicket.markup.html.basic.Label;
+import org.apache.wicket.markup.html.list.ListItem;
+import org.apache.wicket.markup.html.list.ListView;
+import org.apache.wicket.markup.html.panel.Fragment;
+
+/**
+ * Items of a repeater, that show the same fragment class with alternating
+ * markup.
+ */
+public class FragmentRepeaterPage extends WebPage {
+
+  private static final long serialVersionUID = 1L;
+
+  public FragmentRepeaterPage() {
+    add(new ListView<String>("rows", Arrays.asList("view", "edit", "view", "edit")) {
+
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected void populateItem(ListItem<String> item) {
+        item.add(new RowFragment("content", item.getModelObject(), FragmentRepeaterPage.this));
+      }
+
+    });
+  }
+
+  public static class RowFragment extends Fragment {
+
+    private static final long serialVersionUID = 1L;
+
+    @AutoComponent
+    WebMarkupContainer box;
+
+    @AutoComponent
+    Label label;
+
+    public RowFragment(final String id, final String markupId, final MarkupContainer markupProvider) {
+      super(id, markupId, markupProvider);
+    }
+
+  }
+
+}
@@ -0,0 +1,68 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law
+ * or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.github.wicket.autowire;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.wicket.Component;
+import org.apache.wicket.application.IComponentInstantiationListener;
+import org.junit.Test;
+
+/**
+ * Tests lazily created components.
+ */
+public class LazyTest extends AbstractAutoWireTest {
+
+  public LazyTest(final Mode mode) {
+    super(mode);
+  }
+
+  /**
+   * Assert that lazy components are created when they are rendered, and not
+   * at all if a parent is hidden.
+   */
+  @Test
+  public void testLazy() {
+    final AtomicInteger placeholders = new AtomicInteger();
+    this.tester.getApplication().getComponentInstantiationListeners().add(new IComponentInstantiationListener() {
+
+      @Override
+      public void onInstantiation(Component component) {
+        if (component instanceof LazyPlaceholder) {
+          placeholders.incrementAndGet();
+        }
+      }
+
+    });
+    LazyPage page = this.tester.startPage(LazyPage.class);
+    // one placeholder per lazy field, none to build the plan
+    assertEquals(3, placeholders.get());
+    assertNotNull(page.shown);
+    assertSame(page.shown, page.get("shown"));
+    this.tester.assertComponent("shown:link", BasicPanel.TestLink.class);
+    assertNull(page.inside);
+    assertFalse(page.get("hidden:inside") instanceof BasicPanel);
+
+    // nested components are moved to the created component
+    assertSame(page.box, page.get("box"));
+    assertSame(page.text, page.get("box:text"));
+  }
+
+}
@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law
+ * or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.github.wicket.autowire;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.wicket.markup.Markup;
+import org.apache.wicket.markup.MarkupFragment;
+import org.apache.wicket.util.tester.WicketTester;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the keys of markup plans.
+ */
+public class MarkupKeyTest {
+
+  // markup is parsed with the settings of the application
+  private WicketTester tester;
+
+  @Before
+  public void setUp() {
+    this.tester = new WicketTester();
+  }
+
+  @After
+  public void tearDown() {
+    this.tester.destroy();
+  }
+
+  /**
+   * Assert that markup keys depend on the markup structure only and are
+   * reused for fragments of the same markup.
+   */
+  @Test
+  public void testMarkupKey() {
+    MarkupKey.Cache keys = new MarkupKey.Cache();
+    Markup markup = Markup.of("<div wicket:id=\"a\"><span wicket:id=\"b\"></span></div>");
+
+    assertSame(keys.get(markup), keys.get(markup));
+    assertEquals(MarkupKey.of(markup), MarkupKey.of(Markup.of("<div wicket:id=\"a\"><span wicket:id=\"b\"></span></div>")));
+    assertFalse(MarkupKey.of(markup).equals(MarkupKey.of(Markup.of("<div wicket:id=\"a\"><span wicket:id=\"c\"></span></div>"))));
+    assertFalse(keys.get(markup).equals(keys.get(new MarkupFragment(markup, 1))));
+
+    // the cache is bounded, keys are replaced but stay correct
+    for (int i = 0; i < 10000; i++) {
+      Markup other = Markup.of("<span wicket:id=\"a" + i + "\"></span>");
+      assertEquals(MarkupKey.of(other), keys.get(other));
+    }
+    MarkupKey key = keys.get(markup);
+    assertSame(key, keys.get(markup));
+    keys.remove(key.getResource());
+    assertNotSame(key, keys.get(markup));
+  }
+
+  /**
+   * Assert that the cache grows up to its maximum size, if the keys of live
+   * markup are replaced, and that misses are counted.
+   */
+  @Test
+  public void testGrowth() {
+    List<Markup> markups = new ArrayList<Markup>();
+    for (int i = 0; i < 4000; i++) {
+      markups.add(Markup.of("<span wicket:id=\"a" + i + "\"></span>"));
+    }
+
+    CacheStatistics statistics = new CacheStatistics();
+    MarkupKey.Cache keys = new MarkupKey.Cache(65536, statistics);
+    assertEquals(2048, keys.capacity());
+    for (int pass = 0; pass < 10; pass++) {
+      for (Markup markup : markups) {
+        keys.get(markup);
+      }
+    }
+    assertTrue(keys.capacity() > 4000);
+    assertTrue(statistics.getEvictionCount() > 0);
+    long misses = statistics.getMissCount();
+    for (Markup markup : markups) {
+      keys.get(markup);
+    }
+    // slots are shared by two entries, a few keys may still be replaced
+    assertTrue(statistics.getMissCount() - misses < markups.size() / 20);
+
+    // the table does not grow beyond its maximum, misses show the thrashing
+    statistics = new CacheStatistics();
+    keys = new MarkupKey.Cache(1000, statistics);
+    assertEquals(1024, keys.capacity());
+    for (int pass = 0; pass < 3; pass++) {
+      for (Markup markup : markups) {
+        keys.get(markup);
+      }
+    }
+    assertEquals(1024, keys.capacity());
+    assertTrue(statistics.getMissCount() > 2 * markups.size());
+  }
+
+}
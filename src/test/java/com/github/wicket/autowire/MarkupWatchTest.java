@@ -0,0 +1,157 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law
+ * or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.github.wicket.autowire;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import org.apache.wicket.RuntimeConfigurationType;
+import org.apache.wicket.markup.html.basic.Label;
+import org.apache.wicket.mock.MockApplication;
+import org.apache.wicket.util.listener.IChangeListener;
+import org.apache.wicket.util.tester.WicketTester;
+import org.apache.wicket.util.time.Duration;
+import org.apache.wicket.util.watch.IModifiable;
+import org.apache.wicket.util.watch.IModificationWatcher;
+import org.junit.Test;
+
+/**
+ * Tests the invalidation of plans, when markup changes, and frozen plans in
+ * deployment mode.
+ */
+public class MarkupWatchTest extends AbstractAutoWireTest {
+
+  public MarkupWatchTest(final Mode mode) {
+    super(mode);
+  }
+
+  /**
+   * Assert that the plans of a markup are dropped, when the resource watcher
+   * reports a modification of the markup file.
+   */
+  @Test
+  public void testMarkupChange() {
+    final List<IChangeListener> listeners = new ArrayList<IChangeListener>();
+    this.tester.getApplication().getResourceSettings().setResourceWatcher(new IModificationWatcher() {
+
+      @Override
+      public boolean add(IModifiable modifiable, IChangeListener listener) {
+        listeners.add(listener);
+        return true;
+      }
+
+      @Override
+      public IModifiable remove(IModifiable modifiable) {
+        return null;
+      }
+
+      @Override
+      public void start(Duration pollFrequency) {
+      }
+
+      @Override
+      public void destroy() {
+      }
+
+      @Override
+      public Set<IModifiable> getEntries() {
+        return Collections.emptySet();
+      }
+
+    });
+    AutoWire autoWire = AutoWire.get(this.tester.getApplication());
+    this.tester.startPage(BasicPage.class);
+    this.tester.startComponentInPage(BasicPanel.class);
+    assertEquals(1, autoWire.getValue(BasicPage.class).getStatistics().getMarkupPlanCount());
+
+    for (IChangeListener listener : new ArrayList<IChangeListener>(listeners)) {
+      listener.onChange();
+    }
+    assertEquals(0, autoWire.getValue(BasicPage.class).getStatistics().getMarkupPlanCount());
+    assertEquals(0, autoWire.getValue(BasicPanel.class).getStatistics().getMarkupPlanCount());
+
+    this.tester.startPage(BasicPage.class);
+    assertEquals(1, autoWire.getValue(BasicPage.class).getStatistics().getMarkupPlanCount());
+  }
+
+  /**
+   * Assert that plans are frozen in deployment mode.
+   */
+  @Test
+  public void testFrozen() {
+    this.tester.destroy();
+    this.tester = newDeploymentTester(newSettings());
+    AutoWire autoWire = AutoWire.get(this.tester.getApplication());
+    this.tester.startPage(BasicPage.class);
+    this.tester.startPage(BasicPage.class);
+    this.tester.startPage(BasicPage.class);
+
+    ComponentClassStatistics page = autoWire.getValue(BasicPage.class).getStatistics();
+    assertEquals(1, page.getMarkupCacheMissCount());
+    assertEquals(2, page.getMarkupCacheHitCount());
+  }
+
+  /**
+   * Assert that frozen plans of merged markup variants are not mixed up.
+   */
+  @Test
+  public void testFrozenVariants() {
+    this.tester.destroy();
+    this.tester = newDeploymentTester(newSettings());
+    for (Locale locale : new Locale[] { Locale.ENGLISH, Locale.GERMAN, Locale.ENGLISH }) {
+      this.tester.getSession().setLocale(locale);
+      this.tester.startPage(VariantPage.class);
+      this.tester.assertComponent(locale == Locale.ENGLISH ? "box:text" : "box:other", Label.class);
+    }
+  }
+
+  /**
+   * Assert that the markup plan caches keep their size in deployment mode,
+   * although their plans do not expire.
+   */
+  @Test(timeout = 10000)
+  public void testFrozenCacheSize() throws Exception {
+    this.tester.destroy();
+    this.tester = newDeploymentTester(newSettings().setMarkupCacheSize(1));
+    for (Locale locale : new Locale[] { Locale.ENGLISH, Locale.GERMAN }) {
+      this.tester.getSession().setLocale(locale);
+      this.tester.startPage(VariantPage.class);
+    }
+
+    // evicted by the maintenance thread
+    AutoWire.Value value = AutoWire.get(this.tester.getApplication()).getValue(VariantPage.class);
+    while (value.getStatistics().getMarkupPlanCount() > 1) {
+      Thread.sleep(10);
+    }
+    ComponentClassStatistics page = value.getStatistics();
+    assertEquals(1, page.getMarkupCacheEvictionCount());
+  }
+
+  private static WicketTester newDeploymentTester(AutoWireSettings settings) {
+    return new AutoWireTester(new MockApplication() {
+
+      @Override
+      public RuntimeConfigurationType getConfigurationType() {
+        return RuntimeConfigurationType.DEPLOYMENT;
+      }
+
+    }, settings);
+  }
+
+}
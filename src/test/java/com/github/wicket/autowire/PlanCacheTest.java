@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law
+ * or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.github.wicket.autowire;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+
+import org.junit.Test;
+
+public class PlanCacheTest {
+
+  private final List<Runnable> scheduled = new ArrayList<Runnable>();
+
+  private final Executor executor = new Executor() {
+
+    @Override
+    public void execute(Runnable command) {
+      scheduled.add(command);
+    }
+
+  };
+
+  private static Callable<String> value(final String value) {
+    return new Callable<String>() {
+
+      @Override
+      public String call() {
+        return value;
+      }
+
+    };
+  }
+
+  /**
+   * Assert that the cache is shrunk by the maintenance executor, not by the
+   * thread adding an entry.
+   */
+  @Test
+  public void testSizeEviction() throws Exception {
+    CacheStatistics statistics = new CacheStatistics();
+    PlanCache<Integer, String> cache = new PlanCache<Integer, String>(2, Long.MAX_VALUE, statistics, executor);
+
+    cache.get(1, value("1"));
+    cache.get(2, value("2"));
+    cache.get(3, value("3"));
+
+    assertEquals(3, cache.size());
+    assertEquals(1, scheduled.size());
+
+    scheduled.get(0).run();
+    assertEquals(2, cache.size());
+    assertEquals(3, statistics.getMissCount());
+    assertEquals(1, statistics.getEvictionCount());
+
+    cache.get(2, value("2"));
+    assertEquals(1, statistics.getHitCount());
+  }
+
+  /**
+   * Assert that restored entries, that have not been used, are evicted before
+   * the entries in use.
+   */
+  @Test
+  public void testRestoredEviction() throws Exception {
+    CacheStatistics statistics = new CacheStatistics();
+    PlanCache<Integer, String> cache = new PlanCache<Integer, String>(2, Long.MAX_VALUE, statistics, executor);
+
+    cache.get(1, value("1"));
+    cache.restore(2, "2");
+    cache.restore(3, "3");
+    assertEquals(2, statistics.getRestoreCount());
+    // used, like an entry that was computed
+    cache.get(2);
+    cache.maintain();
+
+    assertEquals(2, cache.size());
+    assertEquals("1", cache.get(1));
+    assertEquals("2", cache.get(2));
+    assertNull(cache.get(3));
+    assertEquals(1, statistics.getEvictionCount());
+  }
+
+  /**
+   * Assert that unused entries expire.
+   */
+  @Test
+  public void testTimeEviction() throws Exception {
+    CacheStatistics statistics = new CacheStatistics();
+    PlanCache<Integer, String> cache = new PlanCache<Integer, String>(10, -1, statistics, executor);
+
+    cache.get(1, value("1"));
+    cache.maintain();
+
+    assertNull(cache.get(1));
+    assertEquals(1, statistics.getEvictionCount());
+  }
+
+}
@@ -0,0 +1,76 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law
+ * or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.github.wicket.autowire;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import org.apache.wicket.markup.html.basic.Label;
+import org.junit.Test;
+
+/**
+ * Tests the wiring of repeaters and their items.
+ */
+public class RepeaterTest extends AbstractAutoWireTest {
+
+  public RepeaterTest(final Mode mode) {
+    super(mode);
+  }
+
+  /**
+   * Assert that list views are created for {@link AutoItem} fields and that
+   * the items of a repeater share one plan per request.
+   */
+  @Test
+  public void testRepeater() {
+    this.tester.startPage(RepeaterPage.class);
+    this.tester.assertComponent("panels:2:panel", BasicPanel.class);
+    this.tester.assertLabel("names:1:name", "b");
+
+    ComponentClassStatistics panel = null;
+    for (ComponentClassStatistics statistics : AutoWire.get(this.tester.getApplication()).getStatistics()
+                                                       .getComponentClasses()) {
+      if (statistics.getName().equals(BasicPanel.class.getName())) {
+        panel = statistics;
+      }
+    }
+    assertNotNull(panel);
+    assertEquals(3, panel.getInitializationCount());
+    // the second and third item reuse the plan of the first one
+    assertEquals(1, panel.getMarkupCacheMissCount());
+    assertEquals(2, panel.getMarkupCacheHitCount());
+    assertEquals(2, AutoWire.get(this.tester.getApplication()).getMarkupCacheStatistics().getHitCount());
+  }
+
+  /**
+   * Assert that items with a different markup do not share a plan, e.g. a
+   * fragment class that shows one of two fragments.
+   */
+  @Test
+  public void testRepeaterFragments() {
+    this.tester.startPage(FragmentRepeaterPage.class);
+    this.tester.assertComponent("rows:0:content:label", Label.class);
+    this.tester.assertComponent("rows:1:content:box:label", Label.class);
+    this.tester.assertComponent("rows:3:content:box:label", Label.class);
+    this.tester.assertContains("<div wicket:id=\"box\"><span wicket:id=\"label\"></span></div>");
+
+    ComponentClassStatistics fragment = AutoWire.get(this.tester.getApplication())
+                                                .getValue(FragmentRepeaterPage.RowFragment.class).getStatistics();
+    assertEquals(4, fragment.getInitializationCount());
+    // one plan per fragment, shared by the items with the same fragment
+    assertEquals(2, fragment.getMarkupCacheMissCount());
+    assertEquals(2, fragment.getMarkupCacheHitCount());
+  }
+
+}
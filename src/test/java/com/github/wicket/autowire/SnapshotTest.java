@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law
+ * or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.github.wicket.autowire;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.AbstractCollection;
+import java.util.Iterator;
+
+import org.junit.Test;
+
+/**
+ * Tests saving and restoring plans with snapshots.
+ */
+public class SnapshotTest extends AbstractAutoWireTest {
+
+  public SnapshotTest(final Mode mode) {
+    super(mode);
+  }
+
+  /**
+   * Assert that plans are saved when the application is destroyed and
+   * restored by the next installation.
+   */
+  @Test
+  public void testSnapshot() throws Exception {
+    File file = new File(this.folder.getRoot(), "autowire.snapshot");
+    this.tester.destroy();
+    this.tester = new AutoWireTester(newSettings().setSnapshotFile(file));
+    this.tester.startPage(BasicPage.class);
+    this.tester.startPage(BorderPage.class);
+    this.tester.destroy();
+    assertTrue(file.isFile());
+
+    this.tester = new AutoWireTester(newSettings().setSnapshotFile(file));
+    AutoWire autoWire = AutoWire.get(this.tester.getApplication());
+    assertEquals(3, autoWire.getMarkupCacheStatistics().getRestoreCount());
+    assertEquals(3, autoWire.getStatistics().getMarkupCacheRestoreCount());
+    assertEquals(0, autoWire.getMarkupCacheStatistics().getMissCount());
+    this.tester.startPage(BasicPage.class);
+    this.tester.startPage(BorderPage.class);
+    assertEquals(0, autoWire.getMarkupCacheStatistics().getMissCount());
+
+    // broken snapshots are ignored, destroying saves a valid one
+    this.tester.destroy();
+    FileOutputStream out = new FileOutputStream(file);
+    out.write(new byte[] { 1, 2, 3 });
+    out.close();
+    this.tester = new AutoWireTester(newSettings().setSnapshotFile(file));
+    this.tester.startPage(BasicPage.class);
+
+    // as are snapshots with invalid counts
+    for (int[] counts : new int[][] { { Integer.MAX_VALUE, 0 }, { 1, -1 }, { 1, Integer.MAX_VALUE } }) {
+      this.tester.destroy();
+      DataOutputStream data = new DataOutputStream(new FileOutputStream(file));
+      data.writeInt(0x41575053);
+      data.writeInt(1);
+      data.writeInt(counts[0]);
+      data.writeUTF(BasicPage.class.getName());
+      data.writeLong(0);
+      data.writeBoolean(false);
+      data.writeInt(counts[1]);
+      data.close();
+      this.tester = new AutoWireTester(newSettings().setSnapshotFile(file));
+      assertNotNull(AutoWire.get(this.tester.getApplication()));
+      this.tester.startPage(BasicPage.class);
+    }
+
+    // short file names are fine
+    File shortFile = new File(this.folder.getRoot(), "s");
+    this.tester.destroy();
+    this.tester = new AutoWireTester(newSettings().setSnapshotFile(shortFile));
+    this.tester.startPage(BasicPage.class);
+    this.tester.destroy();
+    assertTrue(shortFile.isFile());
+    this.tester = null;
+  }
+
+  /**
+   * Assert that a failed write leaves neither a snapshot nor its temporary
+   * file behind.
+   */
+  @Test
+  public void testFailedSnapshot() throws Exception {
+    File file = new File(this.folder.getRoot(), "autowire.snapshot");
+    try {
+      PlanSnapshot.write(new AbstractCollection<AutoWire.Value>() {
+
+        @Override
+        public Iterator<AutoWire.Value> iterator() {
+          throw new IllegalStateException();
+        }
+
+        @Override
+        public int size() {
+          return 1;
+        }
+
+      }, file);
+      fail();
+    }
+    catch (IllegalStateException e) {
+      // expected
+    }
+    assertEquals(0, this.folder.getRoot().list().length);
+  }
+
+}
@@ -0,0 +1,106 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law
+ * or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.github.wicket.autowire;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.Test;
+
+/**
+ * Tests the statistics of auto wiring and their publication.
+ */
+public class StatisticsTest extends AbstractAutoWireTest {
+
+  public StatisticsTest(final Mode mode) {
+    super(mode);
+  }
+
+  /**
+   * Assert that statistics are collected per component class, published as
+   * MBean and passed to the metrics SPI.
+   */
+  @Test
+  public void testStatistics() throws Exception {
+    final AtomicInteger built = new AtomicInteger();
+    final AtomicInteger instantiated = new AtomicInteger();
+    final AtomicInteger initialized = new AtomicInteger();
+    this.tester.destroy();
+    this.tester = new AutoWireTester(newSettings().setMetrics(new AutoWireMetrics() {
+
+      @Override
+      public void classPlanBuilt(Class<?> componentClass, long nanos) {
+        built.incrementAndGet();
+      }
+
+      @Override
+      public void markupPlanBuilt(Class<?> componentClass, long nanos) {
+        built.incrementAndGet();
+      }
+
+      @Override
+      public void instantiated(Class<?> componentClass, long nanos) {
+        instantiated.incrementAndGet();
+      }
+
+      @Override
+      public void initialized(Class<?> componentClass, long nanos) {
+        initialized.incrementAndGet();
+      }
+
+    }));
+    this.tester.startPage(BasicPage.class);
+    this.tester.startPage(BasicPage.class);
+
+    AutoWireMXBean statistics = AutoWire.get(this.tester.getApplication()).getStatistics();
+    assertEquals(1, statistics.getComponentClasses().size());
+    ComponentClassStatistics page = statistics.getComponentClasses().get(0);
+    assertEquals(BasicPage.class.getName(), page.getName());
+    assertEquals(2, page.getInstantiationCount());
+    assertEquals(2, page.getInitializationCount());
+    assertEquals(1, page.getMarkupCacheMissCount());
+    assertEquals(1, page.getMarkupCacheHitCount());
+    assertEquals(1, page.getMarkupPlanCount());
+    assertEquals(1, statistics.getMarkupCacheHitCount());
+    assertTrue(statistics.getClassCacheHitCount() > 0);
+
+    long count = 0;
+    for (long bucket : statistics.getInitializationLatencyHistogram()) {
+      count += bucket;
+    }
+    assertEquals(2, count);
+
+    assertEquals(2, built.get());
+    assertEquals(2, instantiated.get());
+    assertEquals(2, initialized.get());
+
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    ObjectName name = new ObjectName("com.github.wicket.autowire:type=AutoWire,application="
+                                     + ObjectName.quote(this.tester.getApplication().getName()));
+    assertEquals(1L, server.getAttribute(name, "MarkupCacheHitCount"));
+    assertEquals(1, ((Object[]) server.getAttribute(name, "ComponentClasses")).length);
+
+    this.tester.destroy();
+    assertFalse(server.isRegistered(name));
+    this.tester = null;
+  }
+
+}
@@ -0,0 +1,327 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law
+ * or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.github.wicket.autowire;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assume.assumeNotNull;
+
+import java.io.File;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingFile;
+
+import org.apache.wicket.Page;
+import org.apache.wicket.ThreadContext;
+import org.apache.wicket.mock.MockApplication;
+import org.apache.wicket.protocol.http.WebApplication;
+import org.apache.wicket.protocol.http.mock.MockHttpServletRequest;
+import org.apache.wicket.protocol.http.mock.MockHttpServletResponse;
+import org.apache.wicket.protocol.http.mock.MockHttpSession;
+import org.apache.wicket.protocol.http.servlet.ServletWebRequest;
+import org.apache.wicket.protocol.http.servlet.ServletWebResponse;
+import org.apache.wicket.request.Url;
+import org.apache.wicket.request.cycle.RequestCycle;
+import org.apache.wicket.session.HttpSessionStore;
+import org.apache.wicket.session.ISessionStore;
+import org.apache.wicket.settings.IRequestCycleSettings.RenderStrategy;
+import org.apache.wicket.util.IProvider;
+import org.apache.wicket.util.tester.WicketTester;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Renders the test pages from many threads at once, with cold caches that are
+ * built concurrently and with warm caches, whose plans are compiled and
+ * swapped in meanwhile. Every page must render exactly as it does single
+ * threaded. Throughput, contended monitors of auto wiring and pinned virtual
+ * threads are taken from Flight Recorder and logged, pinning by auto wiring
+ * fails the test.
+ */
+public class StressTest {
+
+  private static final Logger log = LoggerFactory.getLogger(StressTest.class);
+
+  private static final List<Class<? extends Page>> PAGES = Arrays.<Class<? extends Page>> asList(BasicPage.class,
+                                                                                                 SubClassPage.class,
+                                                                                                 BorderPage.class,
+                                                                                                 ContainerPage.class,
+                                                                                                 RepeaterPage.class,
+                                                                                                 LazyPage.class);
+
+  private static final int THREADS = 16;
+
+  private static final int COLD_ROUNDS = 10;
+
+  private static final int WARM_REQUESTS = 2000;
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private WicketTester tester;
+
+  private final Map<Class<? extends Page>, String> expected = new HashMap<Class<? extends Page>, String>();
+
+  @Before
+  public void setUp() throws Exception {
+    // sessions of the mock application are shared by all requests
+    final MockApplication application = new MockApplication() {
+
+      @Override
+      protected void init() {
+        super.init();
+        setSessionStoreProvider(new IProvider<ISessionStore>() {
+
+          @Override
+          public ISessionStore get() {
+            return new HttpSessionStore();
+          }
+
+        });
+      }
+
+    };
+    this.tester = new AutoWireTester(application, newSettings());
+    // render pages in the request, without redirecting to a buffer
+    this.tester.getApplication().getRequestCycleSettings().setRenderStrategy(RenderStrategy.ONE_PASS_RENDER);
+
+    final ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      for (final Class<? extends Page> page : PAGES) {
+        this.expected.put(page, executor.submit(new Callable<String>() {
+
+          @Override
+          public String call() {
+            return render(page);
+          }
+
+        }).get());
+      }
+    }
+    finally {
+      executor.shutdown();
+    }
+  }
+
+  @After
+  public void tearDown() {
+    this.tester.destroy();
+  }
+
+  protected AutoWireSettings newSettings() {
+    // plans are compiled while the pages are rendered
+    return new AutoWireSettings().setRegisterMBean(false).setCompileThreshold(20);
+  }
+
+  @Test
+  public void testPlatformThreads() throws Exception {
+    stress("platform", Executors.newFixedThreadPool(THREADS));
+  }
+
+  @Test
+  public void testVirtualThreads() throws Exception {
+    final ExecutorService executor = newVirtualThreadExecutor();
+    if (Boolean.getBoolean("autowire.virtualThreads")) {
+      // set by the virtual-threads profile on JDK 21 and later
+      assertNotNull("Virtual threads are not available", executor);
+    }
+    else {
+      // runtime without virtual threads
+      assumeNotNull(executor);
+    }
+    stress("virtual", executor);
+  }
+
+  private void stress(final String threads, final ExecutorService executor) throws Exception {
+    final Recording recording = new Recording();
+    recording.enable("jdk.JavaMonitorEnter").withThreshold(java.time.Duration.ZERO).withStackTrace();
+    recording.enable("jdk.VirtualThreadPinned").withThreshold(java.time.Duration.ZERO).withStackTrace();
+    recording.start();
+    final long cold;
+    final long warm;
+    try {
+      long start = System.nanoTime();
+      for (int i = 0; i < COLD_ROUNDS; i++) {
+        // start each round with empty caches
+        AutoWire.uninstall(this.tester.getApplication());
+        AutoWire.install(this.tester.getApplication(), newSettings());
+        run(executor, THREADS * PAGES.size());
+      }
+      cold = System.nanoTime() - start;
+      start = System.nanoTime();
+      run(executor, WARM_REQUESTS);
+      warm = System.nanoTime() - start;
+    }
+    finally {
+      executor.shutdown();
+      recording.stop();
+    }
+    final File file = this.folder.newFile(threads + ".jfr");
+    recording.dump(file.toPath());
+    recording.close();
+
+    int contended = 0;
+    long blocked = 0;
+    int pinned = 0;
+    final List<String> pinnedAt = new ArrayList<String>();
+    for (RecordedEvent event : RecordingFile.readAllEvents(file.toPath())) {
+      if (event.getEventType().getName().equals("jdk.JavaMonitorEnter")) {
+        if (event.getClass("monitorClass") != null && isAutoWire(event.getClass("monitorClass").getName())) {
+          contended++;
+          blocked += event.getDuration().toNanos();
+        }
+      }
+      else if (event.getEventType().getName().equals("jdk.VirtualThreadPinned")) {
+        final String frame = getAutoWireFrame(event);
+        if (frame != null) {
+          pinned++;
+          pinnedAt.add(frame);
+        }
+      }
+    }
+
+    log.info(String.format("%s threads: %.0f cold and %.0f warm requests/s, %d contended monitor enters of auto "
+                           + "wiring blocked %d us, %d pinned virtual threads", threads,
+                           COLD_ROUNDS * THREADS * PAGES.size() / (cold / 1e9), WARM_REQUESTS / (warm / 1e9),
+                           contended, TimeUnit.NANOSECONDS.toMicros(blocked), pinned));
+    assertEquals("Virtual threads pinned at " + pinnedAt, 0, pinned);
+  }
+
+  /**
+   * Renders the given number of pages, all requests start at once.
+   */
+  private void run(final ExecutorService executor, final int requests) throws Exception {
+    final CountDownLatch start = new CountDownLatch(1);
+    final List<Future<?>> futures = new ArrayList<Future<?>>();
+    for (int i = 0; i < requests; i++) {
+      final Class<? extends Page> page = PAGES.get(i % PAGES.size());
+      futures.add(executor.submit(new Callable<Void>() {
+
+        @Override
+        public Void call() throws Exception {
+          start.await();
+          assertEquals(page.getName(), StressTest.this.expected.get(page), render(page));
+          return null;
+        }
+
+      }));
+    }
+    start.countDown();
+    for (Future<?> future : futures) {
+      try {
+        future.get();
+      }
+      catch (ExecutionException e) {
+        if (e.getCause() instanceof Error) {
+          throw (Error) e.getCause();
+        }
+        throw (Exception) e.getCause();
+      }
+    }
+  }
+
+  /**
+   * Renders a page in a request of a new session, like a servlet container
+   * would.
+   */
+  private String render(final Class<? extends Page> page) {
+    final WebApplication application = this.tester.getApplication();
+    final ThreadContext previous = ThreadContext.detach();
+    ThreadContext.setApplication(application);
+    try {
+      final MockHttpServletRequest request = new MockHttpServletRequest(application,
+                                                                        new MockHttpSession(this.tester.getServletContext()),
+                                                                        this.tester.getServletContext());
+      request.setUrl(Url.parse("wicket/bookmarkable/" + page.getName()));
+      final MockHttpServletResponse response = new MockHttpServletResponse(request);
+      final ServletWebRequest webRequest = new ServletWebRequest(request, request.getFilterPrefix());
+      final RequestCycle cycle = application.createRequestCycle(webRequest,
+                                                                new ServletWebResponse(webRequest, response));
+      if (!cycle.processRequestAndDetach()) {
+        throw new IllegalStateException("No handler for " + page.getName());
+      }
+      return response.getDocument();
+    }
+    finally {
+      ThreadContext.restore(previous);
+    }
+  }
+
+  private static String getAutoWireFrame(final RecordedEvent event) {
+    if (event.getStackTrace() != null) {
+      for (RecordedFrame frame : event.getStackTrace().getFrames()) {
+        if (frame.getMethod() != null && isAutoWire(frame.getMethod().getType().getName())) {
+          return frame.getMethod().getType().getName() + "." + frame.getMethod().getName();
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * @return true for classes of the library, but not of its tests
+   */
+  private static boolean isAutoWire(final String className) {
+    if (!className.startsWith(AutoWire.class.getPackage().getName() + ".")) {
+      return false;
+    }
+    try {
+      final Class<?> cls = Class.forName(className, false, AutoWire.class.getClassLoader());
+      return cls.getProtectionDomain().getCodeSource().getLocation()
+                .equals(AutoWire.class.getProtectionDomain().getCodeSource().getLocation());
+    }
+    catch (ClassNotFoundException e) {
+      return false;
+    }
+  }
+
+  /**
+   * @return an executor, that starts a virtual thread per task, or null if
+   *         virtual threads are not available
+   */
+  private static ExecutorService newVirtualThreadExecutor() {
+    try {
+      final Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+      return (ExecutorService) method.invoke(null);
+    }
+    catch (NoSuchMethodException e) {
+      return null;
+    }
+    catch (Exception e) {
+      // virtual threads are a preview feature and not enabled
+      return null;
+    }
+  }
+
+}
@@ -0,0 +1,169 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law
+ * or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.github.wicket.autowire;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.wicket.util.tester.WicketTester;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests warming up the plans of classes and packages. Warm up builds the plans
+ * the same way in every mode, so the tests run once.
+ */
+public class WarmUpTest {
+
+  private WicketTester tester;
+
+  @After
+  public void tearDown() {
+    if (this.tester != null) {
+      this.tester.destroy();
+    }
+  }
+
+  /**
+   * Assert that warm up builds the plans that are used by the first request.
+   */
+  @Test
+  public void testWarmUp() {
+    this.tester = new AutoWireTester(new AutoWireSettings().warmUp(BasicPage.class, BasicPanel.class,
+                                                                   BorderPage.class, TestBorder.class));
+    AutoWire autoWire = AutoWire.get(this.tester.getApplication());
+    WarmUpReport report = autoWire.warmUp();
+    assertEquals(4, report.getClassCount());
+    assertEquals(4, report.getMarkupCount());
+    assertEquals(0, report.getFailureCount());
+
+    long misses = autoWire.getMarkupCacheStatistics().getMissCount();
+    this.tester.startPage(BasicPage.class);
+    this.tester.startPage(BorderPage.class);
+    this.tester.startComponentInPage(BasicPanel.class);
+    assertEquals(misses, autoWire.getMarkupCacheStatistics().getMissCount());
+  }
+
+  /**
+   * Assert that concurrent warm ups and requests build the plans of each class
+   * and markup exactly once, and that all threads get the same plan.
+   */
+  @Test(timeout = 30000)
+  public void testConcurrentWarmUp() throws Exception {
+    final ConcurrentMap<Class<?>, AtomicInteger> classPlans = new ConcurrentHashMap<Class<?>, AtomicInteger>();
+    AutoWireMetrics metrics = new AutoWireMetrics() {
+
+      @Override
+      public void classPlanBuilt(Class<?> componentClass, long nanos) {
+        count(classPlans, componentClass);
+      }
+
+      @Override
+      public void markupPlanBuilt(Class<?> componentClass, long nanos) {
+
+      }
+
+      @Override
+      public void instantiated(Class<?> componentClass, long nanos) {
+
+      }
+
+      @Override
+      public void initialized(Class<?> componentClass, long nanos) {
+
+      }
+
+    };
+    this.tester = new AutoWireTester(new AutoWireSettings().warmUp(BasicPage.class, BasicPanel.class,
+                                                                   BorderPage.class, TestBorder.class)
+                                                           .setWarmUpThreads(4).setMetrics(metrics));
+    final AutoWire autoWire = AutoWire.get(this.tester.getApplication());
+
+    final int threads = 8;
+    final CyclicBarrier barrier = new CyclicBarrier(threads * 2);
+    ExecutorService executor = Executors.newFixedThreadPool(threads * 2);
+    try {
+      List<Future<WarmUpReport>> reports = new ArrayList<Future<WarmUpReport>>();
+      List<Future<AutoWire.Value>> values = new ArrayList<Future<AutoWire.Value>>();
+      for (int i = 0; i < threads; i++) {
+        reports.add(executor.submit(new Callable<WarmUpReport>() {
+
+          @Override
+          public WarmUpReport call() throws Exception {
+            barrier.await();
+            return autoWire.warmUp();
+          }
+
+        }));
+        values.add(executor.submit(new Callable<AutoWire.Value>() {
+
+          @Override
+          public AutoWire.Value call() throws Exception {
+            barrier.await();
+            return autoWire.getValue(BasicPage.class);
+          }
+
+        }));
+      }
+      for (Future<WarmUpReport> report : reports) {
+        assertEquals(0, report.get().getFailureCount());
+      }
+      for (Future<AutoWire.Value> value : values) {
+        assertSame(values.get(0).get(), value.get());
+      }
+    }
+    finally {
+      executor.shutdownNow();
+    }
+
+    assertEquals(4, classPlans.size());
+    for (AtomicInteger count : classPlans.values()) {
+      assertEquals(1, count.get());
+    }
+    assertEquals(4, autoWire.getStatistics().getClassCacheMissCount());
+    // one markup plan per class
+    assertEquals(4, autoWire.getMarkupCacheStatistics().getMissCount());
+  }
+
+  private static void count(ConcurrentMap<Class<?>, AtomicInteger> counts, Class<?> componentClass) {
+    counts.putIfAbsent(componentClass, new AtomicInteger());
+    counts.get(componentClass).incrementAndGet();
+  }
+
+  /**
+   * Assert that packages are scanned for component classes and that failing
+   * classes do not stop the warm up.
+   */
+  @Test
+  public void testWarmUpPackage() {
+    this.tester = new AutoWireTester(new AutoWireSettings().warmUpPackage(BasicPage.class.getPackage().getName()));
+    WarmUpReport report = AutoWire.get(this.tester.getApplication()).warmUp();
+    assertTrue(report.getMarkupCount() >= 4);
+    // MissingConstructorPage
+    assertEquals(1, report.getFailureCount());
+  }
+
+}
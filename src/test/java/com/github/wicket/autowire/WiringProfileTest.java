@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law
+ * or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.github.wicket.autowire;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.apache.wicket.RuntimeConfigurationType;
+import org.apache.wicket.markup.html.WebPage;
+import org.apache.wicket.markup.html.basic.Label;
+import org.apache.wicket.mock.MockApplication;
+import org.junit.Test;
+
+/**
+ * Tests the wiring profiles of requests.
+ */
+public class WiringProfileTest extends AbstractAutoWireTest {
+
+  public WiringProfileTest(final Mode mode) {
+    super(mode);
+  }
+
+  /**
+   * Assert that the wiring of each request is profiled in development mode.
+   */
+  @Test
+  public void testProfile() {
+    AutoWire autoWire = AutoWire.get(this.tester.getApplication());
+    this.tester.startPage(BasicPage.class);
+    WiringProfile profile = autoWire.getLastProfile();
+    assertEquals(2, profile.getComponentCount());
+    assertEquals(0, profile.getMarkupCacheHitCount());
+    assertEquals(1, profile.getMarkupCacheMissCount());
+    assertTrue(profile.getWiringTime() > 0);
+    // only classes with auto-wired fields are profiled
+    assertEquals(1, profile.getComponentClasses().size());
+    WiringProfile.ClassProfile page = profile.getComponentClasses().get(0);
+    assertEquals(BasicPage.class.getName(), page.getName());
+    assertEquals(1, page.getInstantiationCount());
+    assertEquals(1, page.getInitializationCount());
+    assertEquals(2, profile.getFields().size());
+
+    this.tester.startPage(BasicPage.class);
+    assertNotSame(profile, autoWire.getLastProfile());
+    assertEquals(1, autoWire.getLastProfile().getMarkupCacheHitCount());
+
+    this.tester.startPage(ProfilePage.class);
+    this.tester.assertContains("components created");
+    this.tester.assertContains(BasicPanel.class.getName());
+  }
+
+  /**
+   * Assert that the profile stays balanced, when wiring fails.
+   */
+  @Test
+  public void testProfileFailure() {
+    try {
+      new FailingPage();
+      fail();
+    }
+    catch (IllegalStateException e) {
+      // expected
+    }
+    WiringProfile profile = WiringProfile.get();
+    long failed = profile.getWiringTime();
+    assertEquals(1, profile.getComponentClasses().get(0).getInstantiationCount());
+
+    // not nested into the failed component
+    new BasicPage();
+    assertTrue(profile.getWiringTime() > failed);
+  }
+
+  public static class FailingPage extends WebPage {
+
+    private static final long serialVersionUID = 1L;
+
+    @AutoComponent
+    FailingLabel label;
+
+  }
+
+  public static class FailingLabel extends Label {
+
+    private static final long serialVersionUID = 1L;
+
+    public FailingLabel(final String id) {
+      super(id);
+      throw new IllegalStateException("failed");
+    }
+
+  }
+
+  /**
+   * Assert that requests are not profiled in deployment mode.
+   */
+  @Test
+  public void testProfilingDisabled() {
+    this.tester.destroy();
+    this.tester = new AutoWireTester(new MockApplication() {
+
+      @Override
+      public RuntimeConfigurationType getConfigurationType() {
+        return RuntimeConfigurationType.DEPLOYMENT;
+      }
+
+    }, newSettings());
+    this.tester.startPage(BasicPage.class);
+    assertNull(AutoWire.get(this.tester.getApplication()).getLastProfile());
+  }
+
+}